@@ -0,0 +1,65 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.TestdemoApplication;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.UserService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Boots the application against its own in-memory H2 database (the {@code test} profile) for a
+ * benchmark trial, with extra command-line style properties layered on top.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext(){}
+
+    static ConfigurableApplicationContext start(String database, WebApplicationType type, String... properties){
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=test");
+        args.add("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        args.add("--server.port=0");
+        args.add("--logging.level.root=WARN");
+        args.addAll(List.of(properties));
+        return new SpringApplicationBuilder(TestdemoApplication.class)
+                .web(type)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Boots against an external database, e.g. the Postgres the {@code dev}/{@code prod} profiles
+     * point at, with {@code profiles} active instead of {@code test}.
+     */
+    static ConfigurableApplicationContext startExternal(String profiles, String url, String username, String password,
+                                                        String... properties){
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=" + profiles);
+        args.add("--spring.datasource.url=" + url);
+        args.add("--spring.datasource.username=" + username);
+        args.add("--spring.datasource.password=" + password);
+        args.add("--logging.level.root=WARN");
+        args.addAll(List.of(properties));
+        return new SpringApplicationBuilder(TestdemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+
+    static List<User> users(String prefix, int count){
+        return IntStream.range(0, count)
+                .mapToObj(i -> new User(prefix + " " + i, 18 + i % 60, "Ward " + (i % 32) + ", Kathmandu"))
+                .collect(Collectors.toList());
+    }
+
+    /** Inserts {@code count} users through the batch path and returns them with their ids. */
+    static List<User> seed(ConfigurableApplicationContext context, int count){
+        List<User> users = users("Seed User", count);
+        context.getBean(UserService.class).saveBatch(users, 0);
+        return users;
+    }
+}
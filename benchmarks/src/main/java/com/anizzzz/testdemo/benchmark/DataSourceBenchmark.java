@@ -0,0 +1,88 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findById/findByName latency against Postgres with the {@code dev} datasource (Hikari and pgjdbc
+ * defaults) and the {@code prod} one (sized pool, server-side prepared statements from the first
+ * execution). Goes through UserRepository directly so the users cache doesn't hide the database.
+ *
+ * <pre>
+ * createdb demo_bench
+ * BENCH_JDBC_URL=jdbc:postgresql://localhost:5432/demo_bench BENCH_DB_USERNAME=infotmt BENCH_DB_PASSWORD=... \
+ *     mvn compile exec:exec@jmh -Djmh.include=DataSource
+ * </pre>
+ * The connection settings are environment variables so the forked benchmark JVM sees them too.
+ * The users table of that database is emptied before and after the run, so there is no default
+ * URL: point it at a throwaway database, never at one whose users you want to keep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class DataSourceBenchmark {
+    @Param({"dev", "prod"})
+    private String profile;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = BenchmarkContext.startExternal(profile,
+                requiredEnv("BENCH_JDBC_URL"),
+                env("BENCH_DB_USERNAME", "infotmt"),
+                env("BENCH_DB_PASSWORD", ""));
+        userRepository = context.getBean(UserRepository.class);
+        userRepository.deleteAllInBatch();
+        users = BenchmarkContext.seed(context, tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        userRepository.deleteAllInBatch();
+        context.close();
+    }
+
+    private static String requiredEnv(String name){
+        String value = System.getenv(name);
+        if(value == null || value.isBlank()){
+            throw new IllegalStateException(name + " is not set; it must name a throwaway database, its users table is emptied");
+        }
+        return value;
+    }
+
+    private static String env(String name, String defaultValue){
+        String value = System.getenv(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private User randomUser(){
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+
+    @Benchmark
+    public Optional<User> findById(){
+        return userRepository.findById(randomUser().getId());
+    }
+
+    @Benchmark
+    public Optional<User> findByName(){
+        return userRepository.findByName(randomUser().getName());
+    }
+}
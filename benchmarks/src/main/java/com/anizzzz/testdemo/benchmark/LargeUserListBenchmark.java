@@ -0,0 +1,87 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.model.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GET /user for 100k users as the controller writes it, one user at a time through a
+ * JsonGenerator, with reflective and Blackbird-generated serializers, plus the same with the
+ * gzip Tomcat applies when the client accepts it. The uncompressed and gzipped sizes are
+ * printed once per trial.
+ *
+ * <pre>
+ * mvn compile exec:exec@jmh -Djmh.include=LargeUserList
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class LargeUserListBenchmark {
+    @Param({"reflection", "blackbird"})
+    private String serializers;
+
+    @Param({"100000"})
+    private int listSize;
+
+    private ObjectMapper objectMapper;
+    private List<User> users;
+    private ByteArrayOutputStream buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if(serializers.equals("blackbird")){
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+        users = BenchmarkContext.users("Bench User", listSize);
+        for(int i = 0; i < users.size(); i++){
+            users.get(i).setId(i + 1);
+        }
+        buffer = new ByteArrayOutputStream(listSize * 80);
+        int plain = serializeUserList().length;
+        int gzipped = serializeUserListGzip().length;
+        System.out.printf("%n%s: %d users, %d bytes, %d gzipped (%.1f%%)%n",
+                serializers, listSize, plain, gzipped, 100.0 * gzipped / plain);
+    }
+
+    @Benchmark
+    public byte[] serializeUserList() throws IOException {
+        buffer.reset();
+        write(buffer);
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeUserListGzip() throws IOException {
+        buffer.reset();
+        try(GZIPOutputStream gzip = new GZIPOutputStream(buffer, 8192)){
+            write(gzip);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void write(OutputStream out) throws IOException {
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(out)){
+            generator.writeStartArray();
+            for(User user : users){
+                generator.writeObject(user);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.TestdemoApplication;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * GET /user/page offered at a fixed rate above what the pool can serve, with every JDBC statement
+ * slowed down as in {@link VirtualThreadThroughputBenchmark}, with and without the
+ * {@code load-shedding} profile. Reports goodput and the latency of successful requests, measured
+ * from when each request was due, next to the rate of shed ones.
+ *
+ * <pre>
+ * mvn compile exec:java@load-shedding \
+ *     -Dbench.latencyMs=20 -Dbench.pool=10 -Dbench.rate=1000 -Dbench.seconds=10
+ * </pre>
+ */
+public class LoadSheddingBenchmark {
+    private static final int POOL = Integer.getInteger("bench.pool", 10);
+    private static final int RATE = Integer.getInteger("bench.rate", 1000);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 10);
+
+    public static void main(String[] args) throws Exception {
+        List<String> rows = new ArrayList<>();
+        for(boolean shedding : new boolean[]{false, true}){
+            rows.add(run(shedding));
+        }
+        System.out.printf("%nlatency=%sms pool=%d offered=%d/s duration=%ds%n",
+                System.getProperty("bench.latencyMs", "20"), POOL, RATE, SECONDS);
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n", "mode", "ok/s", "shed/s", "failed/s", "p50 ms", "p99 ms", "max ms");
+        rows.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private static String run(boolean shedding) throws Exception {
+        String profiles = shedding ? "test,load-shedding" : "test";
+        try(ConfigurableApplicationContext context = new SpringApplicationBuilder(TestdemoApplication.class,
+                VirtualThreadThroughputBenchmark.SlowStatements.class)
+                .run("--spring.profiles.active=" + profiles,
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:shedding-" + shedding,
+                        "--spring.datasource.hikari.maximum-pool-size=" + POOL,
+                        "--spring.datasource.hikari.minimum-idle=" + POOL,
+                        "--logging.level.root=WARN")){
+            context.getBean(UserRepository.class).saveAll(IntStream.range(0, 100)
+                    .mapToObj(i -> new User("Bench User " + i, 20 + i % 50, "Kathmandu"))
+                    .collect(Collectors.toList()));
+            int port = context.getBean(Environment.class).getRequiredProperty("local.server.port", Integer.class);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/user/page?size=10")).GET().build();
+
+            offer(request, 2);
+            Result result = offer(request, SECONDS);
+            long[] latencies = result.ok.stream().mapToLong(Long::longValue).sorted().toArray();
+            return String.format("%-10s %10.0f %10.0f %10.0f %10.1f %10.1f %10.1f", shedding ? "shedding" : "none",
+                    latencies.length / (double) SECONDS, result.shed.sum() / (double) SECONDS, result.failed.sum() / (double) SECONDS,
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                    percentile(latencies, 1.0) / 1e6);
+        }
+    }
+
+    /** Open-model load: one request every 1/RATE s for the given time, whether or not earlier ones returned. */
+    private static Result offer(HttpRequest request, int seconds){
+        // HTTP/1.1: over h2c the requests would queue behind Tomcat's per-connection stream limit
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        Result result = new Result();
+        LongAdder outstanding = new LongAdder();
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+        for(long i = 0; i < (long) RATE * seconds; i++){
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if(wait > 0){
+                LockSupport.parkNanos(wait);
+            }
+            outstanding.increment();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if(error == null && response.statusCode() == 200){
+                    result.ok.add(System.nanoTime() - due);
+                } else if(error == null && response.statusCode() == 503){
+                    result.shed.increment();
+                } else {
+                    result.failed.increment();
+                }
+                outstanding.decrement();
+            });
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while(outstanding.sum() > 0 && System.nanoTime() < drainDeadline){
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double p){
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))];
+    }
+
+    private static final class Result {
+        final ConcurrentLinkedQueue<Long> ok = new ConcurrentLinkedQueue<>();
+        final LongAdder shed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+    }
+}
@@ -0,0 +1,127 @@
+package com.anizzzz.testdemo.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time from launching the JVM to the first successful GET /user/page, and to the readiness probe
+ * reporting UP, for a fresh process each run. Modes: {@code default} (the base profiles, DDL
+ * generated at startup), {@code fast-start} (validated schema, lazy beans, warm-up before
+ * readiness) and {@code cds} (fast-start plus the AppCDS archive). Every mode starts from the
+ * plain jar and target/cds/lib, so {@code mvn -Pcds package} has to have run in the app project.
+ *
+ * <p>Settings are system properties: {@code startup.runs} per mode (5), {@code startup.modes}
+ * (default,fast-start,cds), {@code startup.profiles} the base profiles (prod; reads DB_HOST etc.
+ * from the environment), {@code startup.target} the app's target directory (../target),
+ * {@code startup.port} (8099) and {@code startup.timeout} in seconds (120). The child's output
+ * goes to target/startup.
+ */
+public class StartupBenchmark {
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final String MODES = System.getProperty("startup.modes", "default,fast-start,cds");
+    private static final String PROFILES = System.getProperty("startup.profiles", "prod");
+    private static final Path TARGET = Paths.get(System.getProperty("startup.target", "../target"));
+    private static final int PORT = Integer.getInteger("startup.port", 8099);
+    private static final int TIMEOUT_SECONDS = Integer.getInteger("startup.timeout", 120);
+    private static final Path OUT = Paths.get("target/startup");
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    public static void main(String[] args) throws Exception {
+        Files.createDirectories(OUT);
+        StartupBenchmark benchmark = new StartupBenchmark();
+        List<String> rows = new ArrayList<>();
+        for(String mode : MODES.split(",")){
+            long[] firstRequest = new long[RUNS];
+            long[] ready = new long[RUNS];
+            for(int run = 0; run < RUNS; run++){
+                long[] times = benchmark.start(mode.trim(), run);
+                firstRequest[run] = times[0];
+                ready[run] = times[1];
+            }
+            rows.add(String.format("%-12s %12d %12d %12d %12d", mode.trim(),
+                    median(firstRequest), Arrays.stream(firstRequest).min().getAsLong(),
+                    median(ready), Arrays.stream(ready).min().getAsLong()));
+        }
+        System.out.printf("%nprofiles=%s runs=%d%n", PROFILES, RUNS);
+        System.out.printf("%-12s %12s %12s %12s %12s%n", "mode", "first ms", "first min", "ready ms", "ready min");
+        rows.forEach(System.out::println);
+    }
+
+    /** Launches one instance and returns the millis to the first 200 and to readiness UP. */
+    long[] start(String mode, int run) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        if(mode.equals("cds")){
+            Path archive = TARGET.resolve("cds/application.jsa");
+            if(!Files.exists(archive)){
+                throw new IllegalStateException(archive + " not found, run mvn -Pcds package first");
+            }
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.addAll(List.of("-cp", classpath(), "com.anizzzz.testdemo.TestdemoApplication",
+                "--spring.profiles.active=" + PROFILES + (mode.equals("default") ? "" : ",fast-start"),
+                "--server.port=" + PORT,
+                // the default mode has no warm-up indicator; its readiness is just the application state
+                "--management.endpoint.health.probes.enabled=true"));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(OUT.resolve(mode + "-" + run + ".log").toFile())
+                .start();
+        long launched = System.nanoTime();
+        try {
+            long firstRequest = awaitOk(process, URI.create("http://localhost:" + PORT + "/user/page?size=20"), launched);
+            long ready = awaitOk(process, URI.create("http://localhost:" + PORT + "/actuator/health/readiness"), launched);
+            return new long[]{firstRequest, ready};
+        } finally {
+            process.destroy();
+            if(!process.waitFor(30, TimeUnit.SECONDS)){
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private long awaitOk(Process process, URI uri, long launched) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).GET().build();
+        long deadline = launched + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while(System.nanoTime() < deadline){
+            if(!process.isAlive()){
+                throw new IllegalStateException("instance exited with " + process.exitValue() + ", see " + OUT);
+            }
+            try {
+                if(client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200){
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+                }
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        throw new IllegalStateException(uri + " not OK after " + TIMEOUT_SECONDS + "s");
+    }
+
+    private static String classpath(){
+        Path jar = TARGET.resolve("testdemo-0.0.1-SNAPSHOT.jar");
+        return jar + File.pathSeparator + TARGET.resolve("cds/lib") + File.separator + "*";
+    }
+
+    private static long median(long[] values){
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
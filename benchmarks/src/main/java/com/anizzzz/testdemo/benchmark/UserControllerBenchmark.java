@@ -0,0 +1,82 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full DispatcherServlet round trips through MockMvc: argument resolution, the controller,
+ * UserService against embedded H2, and message conversion, without a socket in the way.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserControllerBenchmark {
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+    private List<User> users;
+    private int inserted;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = BenchmarkContext.start("controller-bench", WebApplicationType.SERVLET);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        objectMapper = context.getBean(ObjectMapper.class);
+        users = BenchmarkContext.seed(context, tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getOneById() throws Exception {
+        int id = users.get(ThreadLocalRandom.current().nextInt(users.size())).getId();
+        return mockMvc.perform(MockMvcRequestBuilders.get("/user/{id}", id).accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse getPage() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/user/page").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse save() throws Exception {
+        User user = new User("Posted User " + inserted++, 30, "Pokhara");
+        return mockMvc.perform(MockMvcRequestBuilders.post("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(user)))
+                .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse update() throws Exception {
+        User existing = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        return mockMvc.perform(MockMvcRequestBuilders.put("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(existing)))
+                .andReturn().getResponse();
+    }
+}
@@ -0,0 +1,92 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.config.UserProtobufHttpMessageConverter;
+import com.anizzzz.testdemo.model.User;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a GET /user sized list in each format the endpoint negotiates, the
+ * way the controller writes them: Jackson with the JSON, CBOR and Smile factories, and the
+ * hand-encoded protobuf UserList. The encoded size of each is printed once per trial.
+ *
+ * <pre>
+ * mvn compile exec:exec@jmh -Djmh.include=UserFormat
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserFormatBenchmark {
+    @Param({"json", "cbor", "smile", "protobuf"})
+    private String format;
+
+    @Param({"1000"})
+    private int listSize;
+
+    private ObjectMapper mapper;
+    private List<User> users;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        mapper = switch (format) {
+            case "cbor" -> json.copyWith(new CBORFactory());
+            case "smile" -> json.copyWith(new SmileFactory());
+            default -> json.copyWith(new JsonFactory());
+        };
+        users = BenchmarkContext.users("Bench User", listSize);
+        for(int i = 0; i < users.size(); i++){
+            users.get(i).setId(i + 1);
+        }
+        encoded = encodeUserList();
+        System.out.printf("%n%s: %d bytes for %d users (%.1f per user)%n",
+                format, encoded.length, listSize, encoded.length / (double) listSize);
+    }
+
+    @Benchmark
+    public byte[] encodeUserList() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(listSize * 64);
+        if(format.equals("protobuf")){
+            CodedOutputStream coded = CodedOutputStream.newInstance(out);
+            for(User user : users){
+                UserProtobufHttpMessageConverter.writeUser(coded, 1, user);
+            }
+            coded.flush();
+        } else {
+            mapper.writeValue(out, users);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<User> decodeUserList() throws IOException {
+        if(format.equals("protobuf")){
+            CodedInputStream in = CodedInputStream.newInstance(encoded);
+            List<User> decoded = new ArrayList<>(listSize);
+            while(in.readTag() != 0){
+                int limit = in.pushLimit(in.readRawVarint32());
+                decoded.add(UserProtobufHttpMessageConverter.readUser(in));
+                in.popLimit(limit);
+            }
+            return decoded;
+        }
+        return mapper.readValue(encoded, mapper.getTypeFactory().constructCollectionType(List.class, User.class));
+    }
+}
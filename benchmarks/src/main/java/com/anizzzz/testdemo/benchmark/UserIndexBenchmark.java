@@ -0,0 +1,75 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.dto.UserSearch;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import com.anizzzz.testdemo.service.UserIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name and age-range lookups served by the in-memory {@link UserIndex} ({@code index} profile)
+ * against the same lookups as queries on embedded H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserIndexBenchmark {
+    @Param({"100000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private UserIndex userIndex;
+    private UserRepository userRepository;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = BenchmarkContext.start("index-bench", WebApplicationType.NONE, "--spring.profiles.include=index");
+        userIndex = context.getBean(UserIndex.class);
+        userRepository = context.getBean(UserRepository.class);
+        users = BenchmarkContext.seed(context, tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    private String randomName(){
+        return users.get(ThreadLocalRandom.current().nextInt(users.size())).getName();
+    }
+
+    @Benchmark
+    public OptionalInt indexIdOf(){
+        return userIndex.idOf(randomName());
+    }
+
+    @Benchmark
+    public Optional<User> repositoryFindByName(){
+        return userRepository.findByName(randomName());
+    }
+
+    @Benchmark
+    public int[] indexIdsByAge(){
+        return userIndex.idsByAge(30, 30, 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<User> repositorySearchByAge(){
+        UserSearch search = new UserSearch();
+        search.setMinAge(30);
+        search.setMaxAge(30);
+        return userRepository.search(search, 0, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,224 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load against the /user endpoints of an app started on the H2 {@code test} profile.
+ * Requests are issued on a fixed schedule regardless of how fast responses come back, and each
+ * response time is measured from when the request was <em>due</em>, not when it was sent, so a
+ * stalled server shows up as latency instead of silently lowering the offered load
+ * (coordinated omission). Service time, measured from the actual send, is reported alongside.
+ *
+ * <p>Settings are system properties: {@code load.rate} (requests/s, default 200),
+ * {@code load.seconds} (30), {@code load.warmup} (5), {@code load.users} seeded rows (10000),
+ * {@code load.mix} weights per operation (get=60,page=15,post=10,put=10,delete=5),
+ * {@code load.randomSeed} (42) and {@code load.out} for the .hgrm/.csv output (target/load).
+ */
+public class UserLoadGenerator {
+    private static final double RATE = Double.parseDouble(System.getProperty("load.rate", "200"));
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 5);
+    private static final int USERS = Integer.getInteger("load.users", 10000);
+    private static final String MIX = System.getProperty("load.mix", "get=60,page=15,post=10,put=10,delete=5");
+    private static final long RANDOM_SEED = Long.getLong("load.randomSeed", 42L);
+    private static final Path OUT = Paths.get(System.getProperty("load.out", "target/load"));
+
+    enum Operation { GET, PAGE, POST, PUT, DELETE }
+
+    private final URI base;
+    private final ObjectMapper objectMapper;
+    private final List<User> readable;
+    private final List<User> deletable;
+    private final Operation[] weighted;
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final AtomicInteger posted = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    UserLoadGenerator(URI base, ObjectMapper objectMapper, List<User> users, Operation[] weighted) {
+        this.base = base;
+        this.objectMapper = objectMapper;
+        this.readable = users.subList(0, users.size() / 2);
+        this.deletable = users.subList(users.size() / 2, users.size());
+        this.weighted = weighted;
+    }
+
+    public static void main(String[] args) throws IOException {
+        try(ConfigurableApplicationContext context = BenchmarkContext.start("load", WebApplicationType.SERVLET)){
+            List<User> users = BenchmarkContext.seed(context, USERS);
+            int port = context.getBean(Environment.class).getRequiredProperty("local.server.port", Integer.class);
+            UserLoadGenerator generator = new UserLoadGenerator(URI.create("http://localhost:" + port),
+                    context.getBean(ObjectMapper.class), users, parseMix(MIX));
+
+            Random random = new Random(RANDOM_SEED);
+            generator.run(random, WARMUP_SECONDS);
+            Map<Operation, Stats> stats = generator.run(random, SECONDS);
+            report(stats);
+        }
+    }
+
+    Map<Operation, Stats> run(Random random, int seconds){
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for(Operation operation : Operation.values()){
+            stats.put(operation, new Stats());
+        }
+        LongAdder outstanding = new LongAdder();
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / RATE);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for(long i = 0; ; i++){
+            long due = start + i * interval;
+            if(due >= end){
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if(wait > 0){
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = weighted[random.nextInt(weighted.length)];
+            HttpRequest request = request(operation, random);
+            Stats stat = stats.get(operation);
+            outstanding.increment();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long done = System.nanoTime();
+                stat.record(due, sent, done, error == null ? response.statusCode() : -1);
+                outstanding.decrement();
+            });
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while(outstanding.sum() > 0 && System.nanoTime() < drainDeadline){
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        stats.values().forEach(stat -> stat.elapsedNanos = end - start);
+        return stats;
+    }
+
+    private HttpRequest request(Operation operation, Random random){
+        switch (operation) {
+            case GET:
+                return HttpRequest.newBuilder(base.resolve("/user/" + pick(readable, random).getId())).GET().build();
+            case PAGE:
+                return HttpRequest.newBuilder(base.resolve("/user/page?size=20")).GET().build();
+            case POST:
+                User user = new User("Load User " + posted.incrementAndGet(), 18 + random.nextInt(60), "Lalitpur");
+                return json(HttpRequest.newBuilder(base.resolve("/user")), "POST", user);
+            case PUT:
+                User existing = pick(readable, random);
+                return json(HttpRequest.newBuilder(base.resolve("/user")), "PUT",
+                        new User(existing.getId(), existing.getName(), 18 + random.nextInt(60), existing.getAddress()));
+            case DELETE:
+                int next = deleted.getAndIncrement();
+                int id = next < deletable.size() ? deletable.get(next).getId() : -1;
+                return HttpRequest.newBuilder(base.resolve("/user/" + id)).DELETE().build();
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private HttpRequest json(HttpRequest.Builder builder, String method, User user){
+        try {
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(user)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static User pick(List<User> users, Random random){
+        return users.get(random.nextInt(users.size()));
+    }
+
+    static Operation[] parseMix(String mix){
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for(String entry : mix.split(",")){
+            String[] parts = entry.trim().split("=");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights.entrySet().stream()
+                .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(Operation[]::new);
+    }
+
+    private static void report(Map<Operation, Stats> stats) throws IOException {
+        Files.createDirectories(OUT);
+        String header = String.format("%-8s %8s %8s %6s %6s %9s %9s %9s %9s %9s %9s",
+                "op", "count", "req/s", "4xx", "err", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99");
+        System.out.printf("%nrate=%.0f/s duration=%ds mix=%s%n%s%n", RATE, SECONDS, MIX, header);
+        try(PrintStream csv = new PrintStream(Files.newOutputStream(OUT.resolve("summary.csv")))){
+            csv.println("op,count,throughput,client_errors,errors,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,service_p99_ms");
+            for(Map.Entry<Operation, Stats> entry : stats.entrySet()){
+                Stats stat = entry.getValue();
+                Histogram response = stat.responseTime;
+                if(response.getTotalCount() == 0){
+                    continue;
+                }
+                double throughput = response.getTotalCount() / (stat.elapsedNanos / 1e9);
+                double[] row = {ms(response, 50), ms(response, 90), ms(response, 99), ms(response, 99.9),
+                        response.getMaxValue() / 1000.0, ms(stat.serviceTime, 99)};
+                System.out.printf("%-8s %8d %8.1f %6d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        entry.getKey(), response.getTotalCount(), throughput, stat.clientErrors.sum(), stat.errors.sum(),
+                        row[0], row[1], row[2], row[3], row[4], row[5]);
+                csv.printf("%s,%d,%.1f,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                        entry.getKey(), response.getTotalCount(), throughput, stat.clientErrors.sum(), stat.errors.sum(),
+                        row[0], row[1], row[2], row[3], row[4], row[5]);
+                try(PrintStream hgrm = new PrintStream(Files.newOutputStream(OUT.resolve(entry.getKey().name().toLowerCase() + ".hgrm")))){
+                    response.outputPercentileDistribution(hgrm, 1000.0);
+                }
+            }
+        }
+        System.out.println("Histograms and summary written to " + OUT.toAbsolutePath());
+    }
+
+    private static double ms(Histogram histogram, double percentile){
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    static class Stats {
+        final Histogram responseTime = new ConcurrentHistogram(3);
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        volatile long elapsedNanos;
+
+        void record(long due, long sent, long done, int status){
+            responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(done - due));
+            serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(done - sent));
+            if(status >= 400 && status < 500){
+                clientErrors.increment();
+            } else if(status < 200 || status >= 500){
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the payloads the /user endpoints write and read, using an ObjectMapper built
+ * the way Spring Boot builds the one MVC uses, with and without the Blackbird module JacksonConfig
+ * registers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSerializationBenchmark {
+    @Param({"1000"})
+    private int listSize;
+
+    @Param({"reflection", "blackbird"})
+    private String serializers;
+
+    private ObjectMapper objectMapper;
+    private User user;
+    private List<User> users;
+    private byte[] userJson;
+    private ResponseMessage responseMessage;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if(serializers.equals("blackbird")){
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+        users = BenchmarkContext.users("Bench User", listSize);
+        for(int i = 0; i < users.size(); i++){
+            users.get(i).setId(i + 1);
+        }
+        user = users.get(0);
+        userJson = objectMapper.writeValueAsBytes(user);
+        responseMessage = new ResponseMessage("Saved", HttpStatus.OK);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws IOException {
+        return objectMapper.readValue(userJson, User.class);
+    }
+
+    @Benchmark
+    public byte[] serializeUserList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public ResponseMessage createResponseMessage(){
+        return new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST);
+    }
+
+    @Benchmark
+    public byte[] serializeResponseMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responseMessage);
+    }
+}
@@ -0,0 +1,91 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService methods against embedded H2, through the Spring proxies (cache, transactions).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final List<String> ID_AND_NAME = List.of("id", "name");
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private List<User> users;
+    private int inserted;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = BenchmarkContext.start("service-bench", WebApplicationType.NONE);
+        userService = context.getBean(UserService.class);
+        users = BenchmarkContext.seed(context, tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    private User randomUser(){
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+
+    @Benchmark
+    public Optional<User> getOneById(){
+        return userService.getOneById(randomUser().getId());
+    }
+
+    @Benchmark
+    public Optional<UserPage> getPage(){
+        return userService.getPage(null, UserService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ResponseMessage save(){
+        return userService.save(new User("Inserted User " + inserted++, 30, "Pokhara"));
+    }
+
+    @Benchmark
+    public ResponseMessage saveDuplicate(){
+        User existing = randomUser();
+        return userService.save(new User(existing.getName(), existing.getAge(), existing.getAddress()));
+    }
+
+    @Benchmark
+    public ResponseMessage update(){
+        User existing = randomUser();
+        return userService.update(new User(existing.getId(), existing.getName(), existing.getAge() + 1, existing.getAddress()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void forEachUser(Blackhole blackhole){
+        userService.forEachUser(blackhole::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void forEachProjection(Blackhole blackhole){
+        userService.forEachProjection(ID_AND_NAME, blackhole::consume);
+    }
+}
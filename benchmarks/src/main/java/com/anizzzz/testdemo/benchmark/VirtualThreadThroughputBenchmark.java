@@ -0,0 +1,157 @@
+package com.anizzzz.testdemo.benchmark;
+
+import com.anizzzz.testdemo.TestdemoApplication;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of GET /user/page with and without the {@code virtual} profile when every JDBC
+ * statement blocks for a fixed time, standing in for a slow database. Runs against H2 with the
+ * same pool size in both modes, so the only difference is what the request threads are.
+ *
+ * <pre>
+ * mvn compile exec:java@virtual-threads \
+ *     -Dbench.latencyMs=20 -Dbench.clients=400 -Dbench.seconds=10
+ * </pre>
+ */
+public class VirtualThreadThroughputBenchmark {
+    private static final int LATENCY_MS = Integer.getInteger("bench.latencyMs", 20);
+    private static final int CLIENTS = Integer.getInteger("bench.clients", 400);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 10);
+
+    public static void main(String[] args) throws Exception {
+        List<String> rows = new ArrayList<>();
+        for(boolean virtual : new boolean[]{false, true}){
+            rows.add(run(virtual));
+        }
+        System.out.printf("%nlatency=%dms clients=%d duration=%ds%n", LATENCY_MS, CLIENTS, SECONDS);
+        System.out.printf("%-10s %10s %10s %10s%n", "mode", "req/s", "p50 ms", "p99 ms");
+        rows.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private static String run(boolean virtual) throws Exception {
+        String profiles = virtual ? "test,virtual" : "test";
+        try(ConfigurableApplicationContext context = new SpringApplicationBuilder(TestdemoApplication.class, SlowStatements.class)
+                .run("--spring.profiles.active=" + profiles,
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + virtual,
+                        "--spring.datasource.hikari.maximum-pool-size=" + CLIENTS,
+                        "--spring.datasource.hikari.minimum-idle=" + CLIENTS,
+                        "--logging.level.root=WARN")){
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            userRepository.saveAll(IntStream.range(0, 100)
+                    .mapToObj(i -> new User("Bench User " + i, 20 + i % 50, "Kathmandu"))
+                    .collect(Collectors.toList()));
+            int port = context.getBean(Environment.class).getRequiredProperty("local.server.port", Integer.class);
+            URI uri = URI.create("http://localhost:" + port + "/user/page?size=10");
+
+            drive(uri, 3);
+            long[] latencies = drive(uri, SECONDS);
+            Arrays.sort(latencies);
+            return String.format("%-10s %10.0f %10.1f %10.1f", virtual ? "virtual" : "platform",
+                    latencies.length / (double) SECONDS,
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+        }
+    }
+
+    /**
+     * Closed-model load: {@link #CLIENTS} callers each issue the next request as soon as the
+     * previous one returns, for the given number of seconds. Returns the latencies in nanos.
+     */
+    private static long[] drive(URI uri, int seconds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<long[]> perClient = new ArrayList<>();
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        for(int i = 0; i < CLIENTS; i++){
+            long[] samples = new long[1 << 16];
+            perClient.add(samples);
+            callers.submit(() -> {
+                int n = 1;
+                while(System.nanoTime() < deadline && n < samples.length){
+                    long start = System.nanoTime();
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                    samples[n++] = System.nanoTime() - start;
+                }
+                samples[0] = n - 1;
+                return null;
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        return perClient.stream()
+                .flatMapToLong(samples -> Arrays.stream(samples, 1, (int) samples[0] + 1))
+                .toArray();
+    }
+
+    private static long percentile(long[] sorted, double p){
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))];
+    }
+
+    // Registered explicitly above; deliberately not @Configuration so that component scanning in the
+    // @SpringBootTest contexts doesn't pick it up and slow down every test datasource.
+    static class SlowStatements {
+
+        @Bean
+        static BeanPostProcessor slowDataSource(){
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? delayed(bean, DataSource.class) : bean;
+                }
+            };
+        }
+
+        /**
+         * Proxies the JDBC object so connections and statements handed out by it are proxied too,
+         * and every execute* call on a statement sleeps for {@link #LATENCY_MS} first.
+         */
+        private static <T> T delayed(Object target, Class<T> type){
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if(method.getName().startsWith("execute") && Statement.class.isAssignableFrom(type)){
+                    Thread.sleep(LATENCY_MS);
+                }
+                Object result = invoke(target, method, args);
+                Class<?> returned = method.getReturnType();
+                if(result != null && returned.isInterface() && (returned == Connection.class || Statement.class.isAssignableFrom(returned))){
+                    return delayed(result, returned);
+                }
+                return result;
+            }));
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
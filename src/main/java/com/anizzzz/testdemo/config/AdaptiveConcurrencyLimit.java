@@ -0,0 +1,107 @@
+package com.anizzzz.testdemo.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to latency, a gradient limit with a Vegas-style baseline. Every
+ * window of completed requests the limit is scaled by the ratio of the baseline latency, the
+ * lowest window average seen, to the latest window's average: while latency stays within the
+ * tolerance of the baseline the limit grows by its square root (the queue it allows for); once
+ * requests start queueing for connections or the database slows down, latency rises and the limit
+ * shrinks with it, to at most half per window. The baseline creeps up slowly so that it follows a
+ * database that got slower for good, instead of pinning the limit at its minimum.
+ */
+public class AdaptiveConcurrencyLimit {
+    // how much the baseline rises per window when no window undercuts it
+    private static final double BASELINE_DRIFT = 0.002;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int windowSize;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    // guarded by this
+    private double estimatedLimit;
+    private double baselineNanos;
+    private long windowNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    /**
+     * @param tolerance how much slower than the baseline a window may be before the limit
+     *                  shrinks, e.g. 1.5
+     * @param smoothing how far the limit moves towards a higher estimate, 0 to 1; a lower one is
+     *                  taken as is
+     * @param windowSize completed requests per window
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double tolerance, double smoothing, int windowSize) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowSize = windowSize;
+        this.estimatedLimit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /** Takes a slot, or returns false without waiting when the limit is reached. */
+    public boolean tryAcquire(){
+        while(true){
+            int current = inFlight.get();
+            if(current >= limit){
+                return false;
+            }
+            if(inFlight.compareAndSet(current, current + 1)){
+                return true;
+            }
+        }
+    }
+
+    /** Gives back a slot taken by {@link #tryAcquire}, with how long the request took. */
+    public void release(long latencyNanos){
+        int current = inFlight.getAndDecrement();
+        sample(latencyNanos, current);
+    }
+
+    private synchronized void sample(long latencyNanos, int current){
+        windowNanos += latencyNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, current);
+        if(windowSamples < windowSize){
+            return;
+        }
+        update(windowNanos / (double) windowSamples, windowMaxInFlight);
+        windowNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+    }
+
+    private void update(double shortTermNanos, int maxInFlight){
+        baselineNanos = baselineNanos == 0 ? shortTermNanos : Math.min(shortTermNanos, baselineNanos * (1 + BASELINE_DRIFT));
+        // the limit wasn't what held requests back, so this window says nothing about it
+        if(maxInFlight < estimatedLimit / 2){
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / shortTermNanos));
+        // headroom only while latency is within tolerance: added to a shrinking limit it would
+        // hold the limit up, e.g. at 0.9 of itself plus its square root a limit of 100 stays 100
+        double estimate = gradient < 1.0 ? estimatedLimit * gradient : estimatedLimit + Math.sqrt(estimatedLimit);
+        // back off at once, grow cautiously
+        estimatedLimit = estimate < estimatedLimit ? estimate : estimatedLimit * (1 - smoothing) + estimate * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(estimatedLimit, maxLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
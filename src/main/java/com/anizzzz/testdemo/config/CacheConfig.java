@@ -0,0 +1,35 @@
+package com.anizzzz.testdemo.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+    public static final String USERS = "users";
+
+    /**
+     * The Caffeine manager Boot would build from spring.cache.*, made transaction-aware: evictions
+     * and puts made inside a transaction happen after it commits. Evicting before the commit would
+     * let a concurrent read cache the old row again, to be served until it expires.
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties){
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        if(StringUtils.hasText(properties.getCaffeine().getSpec())){
+            caffeine.setCacheSpecification(properties.getCaffeine().getSpec());
+        }
+        if(!properties.getCacheNames().isEmpty()){
+            caffeine.setCacheNames(properties.getCacheNames());
+        }
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+}
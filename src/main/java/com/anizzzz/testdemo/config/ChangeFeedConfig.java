@@ -0,0 +1,32 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.service.UserChangeFeed;
+import com.anizzzz.testdemo.service.UserChangeOutbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+@Profile("changes")
+@EnableScheduling
+public class ChangeFeedConfig {
+
+    @Bean
+    public UserChangeFeed userChangeFeed(UserChangeOutbox outbox,
+                                         @Value("${app.users.changes.batch-size:500}") int batchSize,
+                                         @Value("${app.users.changes.retention:7d}") Duration retention,
+                                         @Value("${app.users.changes.stream-timeout:30m}") Duration timeout,
+                                         @Value("${app.users.changes.heartbeat:15s}") Duration heartbeat,
+                                         @Value("${app.users.changes.send-threads:4}") int senderThreads,
+                                         @Value("${app.users.changes.send-timeout:10s}") Duration sendTimeout,
+                                         MeterRegistry meterRegistry){
+        return new UserChangeFeed(outbox, batchSize, retention, timeout, heartbeat, Clock.systemUTC(),
+                senderThreads, sendTimeout, meterRegistry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds load on the /user endpoints once reads or writes hit their {@link AdaptiveConcurrencyLimit}:
+ * the request is answered right away instead of waiting in Tomcat's queue or for a pooled
+ * connection. A streamed response holds its slot until the stream completes. The change feed
+ * is left out, its requests are open for as long as the subscriber listens.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final AdaptiveConcurrencyLimit reads;
+    private final AdaptiveConcurrencyLimit writes;
+    private final HttpStatus readRejectStatus;
+    private final HttpStatus writeRejectStatus;
+    private final ObjectMapper objectMapper;
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimit reads, AdaptiveConcurrencyLimit writes,
+                                  HttpStatus readRejectStatus, HttpStatus writeRejectStatus,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.reads = reads;
+        this.writes = writes;
+        this.readRejectStatus = readRejectStatus;
+        this.writeRejectStatus = writeRejectStatus;
+        this.objectMapper = objectMapper;
+        this.readsRejected = rejected(meterRegistry, "read");
+        this.writesRejected = rejected(meterRegistry, "write");
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String kind){
+        return Counter.builder("user.concurrency.rejected")
+                .description("Requests shed because the concurrency limit was reached")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/user/changes");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean read = isRead(request);
+        AdaptiveConcurrencyLimit limit = read ? reads : writes;
+        if(!limit.tryAcquire()){
+            (read ? readsRejected : writesRejected).increment();
+            reject(response, read ? readRejectStatus : writeRejectStatus);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if(request.isAsyncStarted()){
+                request.getAsyncContext().addListener(new Release(limit, start));
+            } else {
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    // POST /user/lookup is a multi-get that only has its ids in the body
+    static boolean isRead(HttpServletRequest request){
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)
+                || request.getRequestURI().equals(request.getContextPath() + "/user/lookup");
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ResponseMessage("Too many requests in flight.", status));
+    }
+
+    private static final class Release implements AsyncListener {
+        private final AdaptiveConcurrencyLimit limit;
+        private final long start;
+
+        Release(AdaptiveConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        // also called after a timeout or an error
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
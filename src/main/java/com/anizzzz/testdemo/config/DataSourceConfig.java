@@ -0,0 +1,85 @@
+package com.anizzzz.testdemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@Profile("prod")
+public class DataSourceConfig {
+    private static final Logger log = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    static final String MINIMUM_IDLE = "spring.datasource.hikari.minimum-idle";
+
+    /**
+     * Sizes the pool unless maximum-pool-size is set explicitly: enough connections to keep every
+     * core busy while others wait on I/O (cores * 2 + 1), but never more than this instance's share
+     * of what the database accepts. The pool is fixed size, so minimum-idle follows unless set.
+     */
+    @Bean
+    public static BeanPostProcessor hikariPoolSizing(Environment environment){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(bean instanceof HikariDataSource dataSource && !environment.containsProperty(MAXIMUM_POOL_SIZE)){
+                    int size = poolSize(Runtime.getRuntime().availableProcessors(),
+                            environment.getProperty("app.datasource.max-connections", Integer.class, 100),
+                            environment.getProperty("app.datasource.reserved-connections", Integer.class, 10),
+                            environment.getProperty("app.datasource.instances", Integer.class, 1));
+                    dataSource.setMaximumPoolSize(size);
+                    if(!environment.containsProperty(MINIMUM_IDLE)){
+                        dataSource.setMinimumIdle(size);
+                    }
+                    log.info("{} sized to {} connections", dataSource.getPoolName(), size);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static int poolSize(int cores, int maxConnections, int reservedConnections, int instances){
+        int share = (maxConnections - reservedConnections) / Math.max(1, instances);
+        return Math.max(2, Math.min(cores * 2 + 1, share));
+    }
+
+    /**
+     * Opens minimum-idle connections before the application reports ready, so the first requests
+     * after a deploy don't pay for TCP/TLS setup and authentication.
+     */
+    @Bean
+    public ApplicationRunner hikariPoolWarmup(HikariDataSource dataSource){
+        return args -> {
+            List<Connection> connections = new ArrayList<>();
+            try {
+                for(int i = 0; i < dataSource.getMinimumIdle(); i++){
+                    connections.add(dataSource.getConnection());
+                }
+            } finally {
+                for(Connection connection : connections){
+                    close(connection);
+                }
+            }
+            log.info("{} warmed up with {} connections", dataSource.getPoolName(), connections.size());
+        };
+    }
+
+    private static void close(Connection connection){
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Could not return warm-up connection", e);
+        }
+    }
+}
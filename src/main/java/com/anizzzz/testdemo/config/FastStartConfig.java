@@ -0,0 +1,23 @@
+package com.anizzzz.testdemo.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+@Profile("fast-start")
+public class FastStartConfig {
+
+    // with lazy initialization nothing would ever ask for beans whose only entry points are
+    // @Scheduled methods (purge, change relay, replica lag), so those are still created eagerly
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeans(){
+        return (beanName, beanDefinition, beanType) -> !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,16 @@
+package com.anizzzz.testdemo.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Boot adds Module beans to the ObjectMapper MVC uses; Blackbird swaps the reflective getter,
+    // setter and constructor calls of User and the DTOs for LambdaMetafactory-generated ones
+    @Bean
+    public BlackbirdModule blackbirdModule(){
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,50 @@
+package com.anizzzz.testdemo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+
+@Configuration
+@Profile("load-shedding")
+public class LoadSheddingConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(Environment environment, ObjectMapper objectMapper,
+                                                                                 MeterRegistry meterRegistry,
+                                                                                 @Value("${app.concurrency.read.reject-status:503}") int readRejectStatus,
+                                                                                 @Value("${app.concurrency.write.reject-status:429}") int writeRejectStatus){
+        AdaptiveConcurrencyLimit reads = limit(environment, meterRegistry, "read");
+        AdaptiveConcurrencyLimit writes = limit(environment, meterRegistry, "write");
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(new ConcurrencyLimitFilter(
+                reads, writes, HttpStatus.valueOf(readRejectStatus), HttpStatus.valueOf(writeRejectStatus), objectMapper, meterRegistry));
+        registration.addUrlPatterns("/user", "/user/*");
+        return registration;
+    }
+
+    private static AdaptiveConcurrencyLimit limit(Environment environment, MeterRegistry meterRegistry, String kind){
+        String prefix = "app.concurrency." + kind + ".";
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                environment.getRequiredProperty(prefix + "initial-limit", Integer.class),
+                environment.getRequiredProperty(prefix + "min-limit", Integer.class),
+                environment.getRequiredProperty(prefix + "max-limit", Integer.class),
+                environment.getRequiredProperty("app.concurrency.tolerance", Double.class),
+                environment.getRequiredProperty("app.concurrency.smoothing", Double.class),
+                environment.getRequiredProperty("app.concurrency.window-size", Integer.class));
+        Gauge.builder("user.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        Gauge.builder("user.concurrency.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Requests holding a concurrency slot")
+                .tag("kind", kind)
+                .register(meterRegistry);
+        return limit;
+    }
+}
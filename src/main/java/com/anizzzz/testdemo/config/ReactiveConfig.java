@@ -0,0 +1,41 @@
+package com.anizzzz.testdemo.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    /**
+     * Soft deletes and the change feed live in the JPA stack: R2DBC deletes are hard deletes and
+     * write no user_changes rows, so those profiles would silently do nothing here.
+     */
+    public ReactiveConfig(Environment environment){
+        if(environment.acceptsProfiles(Profiles.of("soft-delete | changes"))){
+            throw new IllegalStateException("The reactive profile cannot be combined with soft-delete or changes");
+        }
+    }
+
+    // Tomcat is on the classpath for the servlet stack and would otherwise be picked first
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(){
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public ConnectionFactoryInitializer schemaInitializer(ConnectionFactory connectionFactory){
+        ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+        initializer.setConnectionFactory(connectionFactory);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema-reactive.sql")));
+        return initializer;
+    }
+}
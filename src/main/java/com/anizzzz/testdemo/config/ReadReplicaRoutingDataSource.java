@@ -0,0 +1,99 @@
+package com.anizzzz.testdemo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions round-robin to the replicas currently marked
+ * healthy by {@link ReplicaLagMonitor}, and everything else to the primary. Has to sit behind a
+ * LazyConnectionDataSourceProxy: the transaction manager asks for the connection before the
+ * read-only flag of the new transaction is visible here.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaNames;
+    private final Set<String> healthy = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter writes;
+    private final Counter fallbacks;
+    private final Map<String, Counter> reads = new HashMap<>();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, MeterRegistry meterRegistry) {
+        this.replicas = replicas;
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        Map<Object, Object> targets = new LinkedHashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        writes = routeCounter(meterRegistry, PRIMARY, "write");
+        fallbacks = routeCounter(meterRegistry, PRIMARY, "fallback");
+        replicaNames.forEach(name -> reads.put(name, routeCounter(meterRegistry, name, "read")));
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route, String reason){
+        return Counter.builder("datasource.routes")
+                .description("Connections handed out per target database")
+                .tag("route", route)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            writes.increment();
+            return PRIMARY;
+        }
+        for(int i = 0; i < replicaNames.size(); i++){
+            String name = replicaNames.get(Math.floorMod(next.getAndIncrement(), replicaNames.size()));
+            if(healthy.contains(name)){
+                reads.get(name).increment();
+                return name;
+            }
+        }
+        fallbacks.increment();
+        return PRIMARY;
+    }
+
+    Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    void setHealthy(String replica, boolean isHealthy){
+        if(isHealthy){
+            healthy.add(replica);
+        } else {
+            healthy.remove(replica);
+        }
+    }
+
+    boolean isHealthy(String replica){
+        return healthy.contains(replica);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for(DataSource replica : replicas.values()){
+            if(replica instanceof AutoCloseable closeable){
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.anizzzz.testdemo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Polls every replica with the configured lag query and takes it out of read rotation while it
+ * is more than max-lag behind or can't be reached. Replicas start out of rotation until their
+ * first successful check.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final ReadReplicaRoutingDataSource routingDataSource;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final Map<String, Double> lags = new ConcurrentHashMap<>();
+
+    public ReplicaLagMonitor(ReadReplicaRoutingDataSource routingDataSource, ReplicaProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.routingDataSource = routingDataSource;
+        this.lagQuery = properties.getLagQuery();
+        this.maxLagSeconds = properties.getMaxLag().toMillis() / 1000.0;
+        for(String name : routingDataSource.getReplicas().keySet()){
+            lags.put(name, Double.NaN);
+            Gauge.builder("datasource.replica.lag", lags, l -> l.get(name))
+                    .description("Replication lag seen by the last check, NaN if it failed")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.lag-check-interval:5000}")
+    public void check(){
+        routingDataSource.getReplicas().forEach((name, dataSource) -> {
+            double lag = lag(name, dataSource);
+            lags.put(name, lag);
+            boolean healthy = lag <= maxLagSeconds;
+            if(healthy != routingDataSource.isHealthy(name)){
+                log.info("{} {} read rotation (lag {}s)", name, healthy ? "joins" : "leaves", lag);
+            }
+            routingDataSource.setHealthy(name, healthy);
+        });
+    }
+
+    private double lag(String name, DataSource dataSource){
+        try(Connection connection = dataSource.getConnection();
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(lagQuery)){
+            return resultSet.next() ? resultSet.getDouble(1) : Double.NaN;
+        } catch (SQLException e) {
+            log.warn("Lag check on {} failed: {}", name, e.getMessage());
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.anizzzz.testdemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primary from spring.datasource.*, read replicas from app.datasource.replicas[n].*. Replica
+ * pools take the primary's Hikari settings and are opened read-only. Combine with a datasource
+ * profile, e.g. --spring.profiles.active=prod,replica
+ */
+@Configuration
+@Profile("replica")
+@EnableScheduling
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties){
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource, ReplicaProperties properties,
+                                                         MeterRegistry meterRegistry){
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaProperties.Replica> configured = properties.getReplicas();
+        for(int i = 0; i < configured.size(); i++){
+            String name = "replica-" + i;
+            replicas.put(name, replica(name, configured.get(i), primaryDataSource, meterRegistry));
+        }
+        return new ReadReplicaRoutingDataSource(primaryDataSource, replicas, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource routingDataSource){
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReadReplicaRoutingDataSource routingDataSource, ReplicaProperties properties,
+                                               MeterRegistry meterRegistry){
+        return new ReplicaLagMonitor(routingDataSource, properties, meterRegistry);
+    }
+
+    private static HikariDataSource replica(String name, ReplicaProperties.Replica replica, HikariDataSource primary,
+                                            MeterRegistry meterRegistry){
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setReadOnly(true);
+        // both read -1 until the primary's pool has started with its defaults
+        if(primary.getMaximumPoolSize() > 0){
+            dataSource.setMaximumPoolSize(primary.getMaximumPoolSize());
+        }
+        if(primary.getMinimumIdle() >= 0){
+            dataSource.setMinimumIdle(primary.getMinimumIdle());
+        }
+        dataSource.setConnectionTimeout(primary.getConnectionTimeout());
+        dataSource.setMaxLifetime(primary.getMaxLifetime());
+        dataSource.setKeepaliveTime(primary.getKeepaliveTime());
+        dataSource.setLeakDetectionThreshold(primary.getLeakDetectionThreshold());
+        dataSource.setDataSourceProperties(primary.getDataSourceProperties());
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
@@ -0,0 +1,27 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.repository.UserRepository;
+import com.anizzzz.testdemo.service.UserPurgeJob;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+@Profile("soft-delete")
+@EnableScheduling
+public class SoftDeleteConfig {
+
+    @Bean
+    public UserPurgeJob userPurgeJob(UserRepository userRepository,
+                                     @Value("${app.users.purge-retention:7d}") Duration retention,
+                                     @Value("${app.users.purge-batch-size:1000}") int batchSize,
+                                     MeterRegistry meterRegistry){
+        return new UserPurgeJob(userRepository, retention, batchSize, Clock.systemUTC(), meterRegistry);
+    }
+}
@@ -0,0 +1,84 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readiness for the fast-start profile. Once the application is ready it loads the first page of
+ * users into the users cache and serializes it once, then reports UP. Its first query is what
+ * opens the connection pool, unless the prod profile's {@link DataSourceConfig} has already done
+ * so. The readiness group includes it, so the probe only lets traffic in once the first requests
+ * no longer pay for the pool, the lazy beans, the repository queries and the Jackson serializers.
+ * Retries every second while the database isn't reachable.
+ */
+@Component
+@Profile("fast-start")
+public class StartupWarmup implements HealthIndicator {
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final int users;
+
+    private volatile Health health = Health.outOfService().build();
+
+    public StartupWarmup(UserService userService, ObjectMapper objectMapper,
+                         @Value("${app.startup.warmup.users:100}") int users) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.users = users;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        Thread.ofPlatform().name("startup-warmup").daemon().start(() -> {
+            while(!warmUp()){
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    boolean warmUp(){
+        long start = System.nanoTime();
+        try {
+            UserPage page = userService.getPage(null, users).orElseThrow();
+            for(User user : page.getContent()){
+                userService.getOneById(user.getId());
+            }
+            objectMapper.writeValueAsBytes(page);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            health = Health.up()
+                    .withDetail("millis", millis)
+                    .withDetail("cachedUsers", page.getContent().size())
+                    .build();
+            log.info("warmed up in {} ms, {} users cached", millis, page.getContent().size());
+            return true;
+        } catch (Exception e) {
+            log.warn("warm-up failed, retrying: {}", e.toString());
+            health = Health.outOfService().withException(e).build();
+            return false;
+        }
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+}
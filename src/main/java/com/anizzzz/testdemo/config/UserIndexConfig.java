@@ -0,0 +1,13 @@
+package com.anizzzz.testdemo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// UserIndex is rebuilt from the table every app.users.index.rebuild-interval, to pick up writes
+// made by other instances or outside the application
+@Configuration
+@Profile("index")
+@EnableScheduling
+public class UserIndexConfig {
+}
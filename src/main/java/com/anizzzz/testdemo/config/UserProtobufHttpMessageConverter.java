@@ -0,0 +1,136 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.UserService;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads and writes the messages in user.proto as application/x-protobuf. They are encoded by
+ * hand with CodedOutputStream straight into the response stream, without generated message
+ * classes or an intermediate copy of the payload; a User is read from a request body the same way.
+ * Registered after the default converters by {@link WebConfig}, so JSON stays the default.
+ */
+public class UserProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType(APPLICATION_PROTOBUF_VALUE);
+
+    public UserProtobufHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == User.class || clazz == UserPage.class || clazz == ResponseMessage.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == User.class && canRead(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return readUser(CodedInputStream.newInstance(inputMessage.getBody()));
+        } catch (InvalidProtocolBufferException e) {
+            throw new HttpMessageNotReadableException("Malformed protobuf User: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputMessage.getBody());
+        if(body instanceof User user){
+            writeFields(out, UserService.FIELDS, values(user));
+        } else if(body instanceof UserPage page){
+            for(User user : page.getContent()){
+                writeUser(out, 1, user);
+            }
+            writeValue(out, 2, page.getNext());
+        } else {
+            ResponseMessage message = (ResponseMessage) body;
+            writeValue(out, 1, message.getMessage());
+            writeValue(out, 2, message.getStatus() == null ? null : message.getStatus().name());
+        }
+        out.flush();
+    }
+
+    /** Writes the user as the embedded message {@code field}, e.g. one entry of UserList. */
+    public static void writeUser(CodedOutputStream out, int field, User user) throws IOException {
+        writeMessage(out, field, UserService.FIELDS, values(user));
+    }
+
+    /**
+     * Writes a User message holding only the given attributes, {@code values} in the order of
+     * {@code fields}, as the embedded message {@code field}.
+     */
+    public static void writeMessage(CodedOutputStream out, int field, List<String> fields, Object[] values) throws IOException {
+        int size = 0;
+        for(int i = 0; i < fields.size(); i++){
+            size += valueSize(fieldNumber(fields.get(i)), values[i]);
+        }
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        writeFields(out, fields, values);
+    }
+
+    public static User readUser(CodedInputStream in) throws IOException {
+        User user = new User();
+        for(int tag = in.readTag(); tag != 0; tag = in.readTag()){
+            int wireType = WireFormat.getTagWireType(tag);
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> { if(wireType == WireFormat.WIRETYPE_VARINT) user.setId(in.readInt32()); else in.skipField(tag); }
+                case 2 -> { if(wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) user.setName(in.readString()); else in.skipField(tag); }
+                case 3 -> { if(wireType == WireFormat.WIRETYPE_VARINT) user.setAge(in.readInt32()); else in.skipField(tag); }
+                case 4 -> { if(wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) user.setAddress(in.readString()); else in.skipField(tag); }
+                default -> in.skipField(tag);
+            }
+        }
+        return user;
+    }
+
+    private static void writeFields(CodedOutputStream out, List<String> fields, Object[] values) throws IOException {
+        for(int i = 0; i < fields.size(); i++){
+            writeValue(out, fieldNumber(fields.get(i)), values[i]);
+        }
+    }
+
+    // proto3 leaves out zero and empty values
+    private static void writeValue(CodedOutputStream out, int field, Object value) throws IOException {
+        if(value instanceof Integer number && number != 0){
+            out.writeInt32(field, number);
+        } else if(value instanceof String text && !text.isEmpty()){
+            out.writeString(field, text);
+        }
+    }
+
+    private static int valueSize(int field, Object value){
+        if(value instanceof Integer number && number != 0){
+            return CodedOutputStream.computeInt32Size(field, number);
+        } else if(value instanceof String text && !text.isEmpty()){
+            return CodedOutputStream.computeStringSize(field, text);
+        }
+        return 0;
+    }
+
+    private static int fieldNumber(String field){
+        return UserService.FIELDS.indexOf(field) + 1;
+    }
+
+    private static Object[] values(User user){
+        return new Object[]{user.getId(), user.getName(), user.getAge(), user.getAddress()};
+    }
+}
@@ -0,0 +1,17 @@
+package com.anizzzz.testdemo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // appended rather than declared as a bean, which Boot would put ahead of the JSON converter
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new UserProtobufHttpMessageConverter());
+    }
+}
@@ -0,0 +1,89 @@
+package com.anizzzz.testdemo.controller;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.ReactiveUserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/user")
+@Profile("reactive")
+public class ReactiveUserController {
+    private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.US_ASCII);
+    private static final byte COMMA = ',';
+
+    private final ReactiveUserService userService;
+    private final ObjectWriter userWriter;
+
+    public ReactiveUserController(ReactiveUserService userService, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.userWriter = objectMapper.writerFor(User.class);
+    }
+
+    /**
+     * Writes the JSON array element by element as rows arrive, so demand from the client
+     * connection is what pulls rows off the database.
+     */
+    @GetMapping
+    public Flux<DataBuffer> getAll(ServerHttpResponse response){
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBufferFactory buffers = response.bufferFactory();
+        Flux<DataBuffer> users = userService.getAll()
+                .index()
+                .map(indexed -> {
+                    byte[] json = toJson(indexed.getT2());
+                    DataBuffer buffer = buffers.allocateBuffer(json.length + 1);
+                    if(indexed.getT1() > 0){
+                        buffer.write(COMMA);
+                    }
+                    return buffer.write(json);
+                });
+        return Flux.concat(Mono.fromSupplier(() -> buffers.wrap(ARRAY_START)), users,
+                Mono.fromSupplier(() -> buffers.wrap(ARRAY_END)));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<User>> getOneById(@PathVariable(name = "id") int id){
+        return userService.getOneById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<ResponseMessage>> save(@RequestBody User user){
+        return userService.save(user).map(response -> new ResponseEntity<>(response, response.getStatus()));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<ResponseMessage>> update(@RequestBody User user){
+        return userService.update(user).map(response -> new ResponseEntity<>(response, response.getStatus()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<ResponseMessage>> delete(@PathVariable(name = "id") int id){
+        return userService.deleteUser(id).map(response -> new ResponseEntity<>(response, response.getStatus()));
+    }
+
+    private byte[] toJson(User user){
+        try {
+            return userWriter.writeValueAsBytes(user);
+        } catch (JsonProcessingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
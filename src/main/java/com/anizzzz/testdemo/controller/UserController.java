@@ -1,50 +1,525 @@
 package com.anizzzz.testdemo.controller;
 
+import com.anizzzz.testdemo.config.UserProtobufHttpMessageConverter;
+import com.anizzzz.testdemo.dto.BatchItemResult;
 import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.dto.UserSearch;
+import com.anizzzz.testdemo.dto.WriteStatus;
 import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.UserChangeFeed;
 import com.anizzzz.testdemo.service.UserService;
+import com.anizzzz.testdemo.service.UserWriteBehind;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedOutputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.Function;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/user")
 public class UserController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final List<MediaType> LIST_FORMATS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+            APPLICATION_SMILE, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF);
+
+    // responses may be stored but must be revalidated, which the ETags make cheap
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<UserWriteBehind> writeBehind;
+    private final ObjectProvider<UserChangeFeed> changeFeed;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                          ObjectProvider<UserWriteBehind> writeBehind, ObjectProvider<UserChangeFeed> changeFeed) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        // same configuration as the JSON mapper, writing the binary formats
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+        this.meterRegistry = meterRegistry;
+        this.writeBehind = writeBehind;
+        this.changeFeed = changeFeed;
     }
 
-    @GetMapping
-    public ResponseEntity<List<User>> getAll(){
-        return ResponseEntity.ok(userService.getAll());
+    /**
+     * Streams every user as a JSON array, or in CBOR, Smile or protobuf (a UserList, see
+     * user.proto) when the Accept header prefers one of those. With {@code fields}, e.g.
+     * {@code ?fields=id,name}, only those attributes are selected and written, without loading
+     * User entities at all. The ETag comes from a counter that every write bumps, read by primary
+     * key, so a client revalidating with If-None-Match gets a 304 without the table being read.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            APPLICATION_SMILE_VALUE, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAll(@RequestParam(name = "fields", required = false) String fields,
+                                                        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                        @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept){
+        Optional<List<String>> projection = fields == null ? Optional.of(UserService.FIELDS) : UserService.parseFields(fields);
+        if(projection.isEmpty()){
+            return ResponseEntity.badRequest().build();
+        }
+        // taken before the body is streamed, so a concurrent write can leave the tag older than the body but never newer.
+        // Weak, as it stands for the users rather than the bytes: it is the same in every format and
+        // encoding, and Tomcat doesn't compress a response that has a strong ETag.
+        String tag = userService.getCollectionTag(projection.get());
+        String etag = "W/\"" + tag + "\"";
+        if(matchesAny(ifNoneMatch, tag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE)
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        MediaType format = negotiate(accept, LIST_FORMATS);
+        StreamingResponseBody body;
+        if(format.equals(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF)){
+            body = fields == null ? getEntitiesProtobuf() : getProjectionProtobuf(projection.get());
+        } else {
+            ObjectMapper mapper = format.equals(MediaType.APPLICATION_CBOR) ? cborMapper
+                    : format.equals(APPLICATION_SMILE) ? smileMapper : objectMapper;
+            body = fields == null ? getEntities(mapper) : getProjection(mapper, projection.get());
+        }
+        return ResponseEntity.ok().contentType(format).eTag(etag).cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.ACCEPT).body(body);
     }
 
+    /**
+     * The first of {@code formats} that the Accept header takes, trying its media types in order
+     * of quality and skipping formats it names with q=0; the first format when there is no Accept
+     * header. Requests that take none of the formats have been turned away with 406 already.
+     */
+    static MediaType negotiate(String accept, List<MediaType> formats){
+        if(accept == null || accept.isBlank()){
+            return formats.get(0);
+        }
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        List<MediaType> candidates = new ArrayList<>(formats);
+        accepted.stream()
+                .filter(type -> type.getQualityValue() == 0)
+                .forEach(refused -> candidates.removeIf(refused::equalsTypeAndSubtype));
+        for(MediaType type : accepted){
+            for(MediaType format : candidates){
+                if(type.getQualityValue() > 0 && type.includes(format)){
+                    return format;
+                }
+            }
+        }
+        return formats.get(0);
+    }
+
+    private StreamingResponseBody getEntities(ObjectMapper mapper){
+        return out -> {
+            try(JsonGenerator generator = mapper.getFactory().createGenerator(out)){
+                generator.writeStartArray();
+                userService.forEachUser(user -> {
+                    try {
+                        generator.writeObject(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    private StreamingResponseBody getProjection(ObjectMapper mapper, List<String> fields){
+        return out -> {
+            try(JsonGenerator generator = mapper.getFactory().createGenerator(out)){
+                generator.writeStartArray();
+                userService.forEachProjection(fields, row -> {
+                    try {
+                        generator.writeStartObject();
+                        for(int i = 0; i < fields.size(); i++){
+                            generator.writeObjectField(fields.get(i), row.get(i));
+                        }
+                        generator.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    // each user is written as one more entry of UserList's repeated field 1
+    private StreamingResponseBody getEntitiesProtobuf(){
+        return out -> {
+            CodedOutputStream coded = CodedOutputStream.newInstance(out);
+            userService.forEachUser(user -> {
+                try {
+                    UserProtobufHttpMessageConverter.writeUser(coded, 1, user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            coded.flush();
+        };
+    }
+
+    private StreamingResponseBody getProjectionProtobuf(List<String> fields){
+        return out -> {
+            CodedOutputStream coded = CodedOutputStream.newInstance(out);
+            userService.forEachProjection(fields, row -> {
+                try {
+                    UserProtobufHttpMessageConverter.writeMessage(coded, 1, fields, row.toArray());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            coded.flush();
+        };
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<UserPage> getPage(@RequestParam(name = "cursor", required = false) String cursor,
+                                            @RequestParam(name = "size", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int size){
+        Optional<UserPage> page = userService.getPage(cursor, size);
+        return page.map(p -> ResponseEntity.ok().cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(p))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * e.g. {@code /user/search?name=ram&address=kath&addressMatch=CONTAINS&minAge=20&maxAge=40},
+     * paged with the cursor and size of {@code /user/page}.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<UserPage> search(UserSearch search,
+                                           @RequestParam(name = "cursor", required = false) String cursor,
+                                           @RequestParam(name = "size", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int size){
+        Optional<UserPage> page = userService.search(search, cursor, size);
+        return page.map(p -> ResponseEntity.ok().cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(p))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * The version is the ETag, so a matching If-None-Match is answered with 304 before the user is
+     * serialized; the user itself normally comes from the cache rather than the database.
+     */
     @GetMapping("/{id}")
     public ResponseEntity<User> getOneById(@PathVariable(name = "id") int id){
         Optional<User> user = userService.getOneById(id);
-        return user.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.badRequest().build());
+        return user.map(u -> ResponseEntity.ok().eTag(Integer.toString(u.getVersion())).cacheControl(REVALIDATE)
+                        .varyBy(HttpHeaders.ACCEPT).body(u))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * Multi-get, e.g. {@code /user?ids=1,2,3}: one entry per id in the order given, either the
+     * user or a "User not found." marker, for one round trip instead of one per id. Lists too
+     * long for a URL go in the body of POST /user/lookup instead.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getAllById(@RequestParam(name = "ids") List<Integer> ids){
+        return lookup(ids);
+    }
+
+    /** Multi-get with the ids as a JSON array in the body; same response as GET /user?ids=. */
+    @PostMapping(value = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> lookup(@RequestBody List<Integer> ids){
+        if(ids.size() > UserService.MAX_LOOKUP_SIZE){
+            return ResponseEntity.badRequest().body(new ResponseMessage("Too many ids.", HttpStatus.BAD_REQUEST));
+        }
+        return ResponseEntity.ok(userService.getAllById(ids));
     }
 
     @PostMapping
-    public ResponseEntity<ResponseMessage> save(@RequestBody User user){
+    public ResponseEntity<?> save(@RequestBody User user){
+        UserWriteBehind writes = writeBehind.getIfAvailable();
+        if(writes != null){
+            return saveBehind(writes, user);
+        }
         ResponseMessage response = userService.save(user);
-        System.out.println(response.getStatus().toString() + " " + response.getMessage());
-        return new ResponseEntity<>(response, response.getStatus());
+        log.debug("save {}: {} {}", user.getName(), response.getStatus(), response.getMessage());
+        return respond("save", response);
+    }
+
+    /**
+     * In the write-behind profile: 429 when the queue is full. With ACCEPTED durability a queued
+     * user gets 202 with a tracking id to poll at /user/writes/{trackingId}; with COMMITTED the
+     * answer a synchronous save would give once the batch has committed, or 202 all the same if
+     * that takes longer than commit-timeout.
+     */
+    private ResponseEntity<?> saveBehind(UserWriteBehind writes, User user){
+        Optional<UserWriteBehind.PendingWrite> pending = writes.submit(user);
+        if(pending.isEmpty()){
+            ResponseMessage response = new ResponseMessage("Too many pending writes.", HttpStatus.TOO_MANY_REQUESTS);
+            countOutcome("save", response.getMessage(), response.getStatus());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        UserWriteBehind.PendingWrite write = pending.get();
+        WriteStatus status = write.isQueued() && writes.getDurability() == UserWriteBehind.Durability.COMMITTED
+                ? writes.await(write) : write.status();
+        if(write.isQueued() && (writes.getDurability() == UserWriteBehind.Durability.ACCEPTED
+                || status.getState() == WriteStatus.State.PENDING)){
+            countOutcome("save", "Accepted", HttpStatus.ACCEPTED);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/user/writes/" + status.getTrackingId()))
+                    .body(status);
+        }
+        switch (status.getState()) {
+            case SAVED:
+                return respond("save", new ResponseMessage("Saved", HttpStatus.OK));
+            case REJECTED:
+                return respond("save", new ResponseMessage(status.getMessage(), HttpStatus.BAD_REQUEST));
+            default:
+                return respond("save", new ResponseMessage(status.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR));
+        }
     }
 
+    @GetMapping("/writes/{trackingId}")
+    public ResponseEntity<WriteStatus> getWriteStatus(@PathVariable(name = "trackingId") String trackingId){
+        UserWriteBehind writes = writeBehind.getIfAvailable();
+        Optional<WriteStatus> status = writes == null ? Optional.empty() : writes.status(trackingId);
+        return status.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+
+    /**
+     * Streams user changes as Server-Sent Events, one per change with its offset as the event
+     * id, so consumers follow changes instead of rescanning GET /user. Resumes after the offset
+     * in Last-Event-ID, as sent by a reconnecting EventSource, or in {@code after}; without
+     * either, starts with the next change. Only available in the changes profile.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> changes(@RequestParam(name = "after", required = false) String after,
+                                              @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) throws IOException {
+        UserChangeFeed feed = changeFeed.getIfAvailable();
+        if(feed == null){
+            return ResponseEntity.notFound().build();
+        }
+        String offset = lastEventId != null ? lastEventId : after;
+        OptionalLong from = OptionalLong.empty();
+        if(offset != null){
+            try {
+                from = OptionalLong.of(Long.parseLong(offset.trim()));
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            if(from.getAsLong() < 0){
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(feed.subscribe(from));
+    }
+
+    /**
+     * Accepts either a JSON array or newline-delimited JSON; a root-level array is unwrapped by
+     * the reader, so both are read one user at a time and saved in chunks as they arrive.
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<List<BatchItemResult>> saveBatch(InputStream body) throws IOException {
+        List<BatchItemResult> report = new ArrayList<>();
+        List<User> chunk = new ArrayList<>(UserService.BATCH_CHUNK_SIZE);
+        try(MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(body)){
+            while(users.hasNextValue()){
+                chunk.add(users.nextValue());
+                if(chunk.size() == UserService.BATCH_CHUNK_SIZE){
+                    report.addAll(saveChunk(chunk, report.size()));
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            report.addAll(saveChunk(chunk, report.size()));
+            report.add(new BatchItemResult(report.size(), null, "Malformed user.", HttpStatus.BAD_REQUEST));
+            report.forEach(result -> countOutcome("batch", result.getMessage(), result.getStatus()));
+            return ResponseEntity.badRequest().body(report);
+        }
+        if(!chunk.isEmpty()){
+            report.addAll(saveChunk(chunk, report.size()));
+        }
+        report.forEach(result -> countOutcome("batch", result.getMessage(), result.getStatus()));
+        return ResponseEntity.ok(report);
+    }
+
+    // a name inserted concurrently, after the chunk's duplicate check, fails the whole chunk's
+    // transaction on uk_users_name; save the chunk again one user at a time so only that user fails
+    private List<BatchItemResult> saveChunk(List<User> chunk, int offset){
+        try {
+            return userService.saveBatch(chunk, offset);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("batch chunk at {} hit a concurrent insert, saving one at a time: {}", offset, e.toString());
+        }
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        for(int i = 0; i < chunk.size(); i++){
+            User user = chunk.get(i);
+            ResponseMessage response = userService.save(user);
+            Integer id = response.getStatus() == HttpStatus.OK ? user.getId() : null;
+            results.add(new BatchItemResult(offset + i, id, response.getMessage(), response.getStatus()));
+        }
+        return results;
+    }
+
+    /**
+     * Without If-Match (or with {@code *}) the user is overwritten. With the ETag of a previous
+     * GET /user/{id}, the update only applies if nobody changed the user since, otherwise 412.
+     */
     @PutMapping
-    public ResponseEntity<ResponseMessage> update(@RequestBody User user){
-        ResponseMessage response = userService.update(user);
+    public ResponseEntity<ResponseMessage> update(@RequestBody User user,
+                                                  @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return respondIfMatch("update", ifMatch,
+                version -> version.isPresent() ? userService.update(user, version.getAsInt()) : userService.update(user));
+    }
+
+    /**
+     * JSON Merge Patch (RFC 7396): only the attributes present in the body are written, and null
+     * clears name or address. If-Match works as for PUT.
+     */
+    @PatchMapping(value = "/{id}", consumes = {APPLICATION_MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ResponseMessage> patch(@PathVariable(name = "id") int id, @RequestBody JsonNode patch,
+                                                 @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Optional<Map<String, Object>> changes = parsePatch(patch);
+        if(changes.isEmpty()){
+            return respond("patch", new ResponseMessage("Malformed patch.", HttpStatus.BAD_REQUEST));
+        }
+        return respondIfMatch("patch", ifMatch, version -> userService.patch(id, changes.get(), version));
+    }
+
+    static Optional<Map<String, Object>> parsePatch(JsonNode patch){
+        if(!patch.isObject()){
+            return Optional.empty();
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for(Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ){
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "name":
+                case "address":
+                    if(!value.isTextual() && !value.isNull()){
+                        return Optional.empty();
+                    }
+                    changes.put(field.getKey(), value.isNull() ? null : value.textValue());
+                    break;
+                case "age":
+                    if(!value.isIntegralNumber() || !value.canConvertToInt()){
+                        return Optional.empty();
+                    }
+                    changes.put("age", value.intValue());
+                    break;
+                default:
+                    return Optional.empty();
+            }
+        }
+        return Optional.of(changes);
+    }
+
+    private ResponseEntity<ResponseMessage> respondIfMatch(String operation, String ifMatch,
+                                                           Function<OptionalInt, ResponseMessage> write){
+        if(ifMatch == null || ifMatch.trim().equals("*")){
+            return respond(operation, write.apply(OptionalInt.empty()));
+        }
+        OptionalInt version = parseETag(ifMatch);
+        ResponseMessage response = version.isPresent()
+                ? write.apply(version)
+                : new ResponseMessage("User has been modified.", HttpStatus.PRECONDITION_FAILED);
+        countOutcome(operation, response.getMessage(), response.getStatus());
+        if(response.getStatus() == HttpStatus.OK){
+            return ResponseEntity.ok().eTag(Integer.toString(version.getAsInt() + 1)).body(response);
+        }
         return new ResponseEntity<>(response, response.getStatus());
     }
 
+    // If-None-Match uses the weak comparison, so W/"x" matches "x"; our tags never contain commas
+    static boolean matchesAny(String ifNoneMatch, String etag){
+        if(ifNoneMatch == null){
+            return false;
+        }
+        String quoted = "\"" + etag + "\"";
+        for(String tag : ifNoneMatch.split(",")){
+            String candidate = tag.trim();
+            if(candidate.startsWith("W/")){
+                candidate = candidate.substring(2);
+            }
+            if(candidate.equals("*") || candidate.equals(quoted)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // only strong tags can match for If-Match, so a weak or otherwise malformed one never does
+    static OptionalInt parseETag(String etag){
+        String tag = etag.trim();
+        if(tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"'){
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(Integer.parseInt(tag.substring(1, tag.length() - 1)));
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Bulk delete: the body is a JSON array of ids, deleted in chunks of set-based statements.
+     * The report has one entry per id, in the order given.
+     */
+    @DeleteMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResult>> deleteBatch(@RequestBody List<Integer> ids){
+        List<BatchItemResult> report = new ArrayList<>(ids.size());
+        for(int from = 0; from < ids.size(); from += UserService.BATCH_CHUNK_SIZE){
+            List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + UserService.BATCH_CHUNK_SIZE));
+            report.addAll(userService.deleteBatch(chunk, from));
+        }
+        report.forEach(result -> countOutcome("delete", result.getMessage(), result.getStatus()));
+        return ResponseEntity.ok(report);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<ResponseMessage> delete(@PathVariable(name = "id") int id){
         ResponseMessage response = userService.deleteUser(id);
+        return respond("delete", response);
+    }
+
+    private ResponseEntity<ResponseMessage> respond(String operation, ResponseMessage response){
+        countOutcome(operation, response.getMessage(), response.getStatus());
         return new ResponseEntity<>(response, response.getStatus());
     }
+
+    private void countOutcome(String operation, String outcome, HttpStatus status){
+        meterRegistry.counter("user.responses", "operation", operation, "outcome", outcome, "status", status.name())
+                .increment();
+    }
 }
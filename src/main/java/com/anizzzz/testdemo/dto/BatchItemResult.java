@@ -0,0 +1,51 @@
+package com.anizzzz.testdemo.dto;
+
+import org.springframework.http.HttpStatus;
+
+public class BatchItemResult {
+    private int index;
+    private Integer id;
+    private String message;
+    private HttpStatus status;
+
+    public BatchItemResult(){}
+
+    public BatchItemResult(int index, Integer id, String message, HttpStatus status){
+        this.index = index;
+        this.id = id;
+        this.message = message;
+        this.status = status;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HttpStatus status) {
+        this.status = status;
+    }
+}
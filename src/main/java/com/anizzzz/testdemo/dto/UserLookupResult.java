@@ -0,0 +1,60 @@
+package com.anizzzz.testdemo.dto;
+
+import com.anizzzz.testdemo.model.User;
+import org.springframework.http.HttpStatus;
+
+public class UserLookupResult {
+    private Integer id;
+    private User user;
+    private String message;
+    private HttpStatus status;
+
+    public UserLookupResult(){}
+
+    public UserLookupResult(Integer id, User user, String message, HttpStatus status){
+        this.id = id;
+        this.user = user;
+        this.message = message;
+        this.status = status;
+    }
+
+    public static UserLookupResult found(User user){
+        return new UserLookupResult(user.getId(), user, null, HttpStatus.OK);
+    }
+
+    public static UserLookupResult notFound(Integer id){
+        return new UserLookupResult(id, null, "User not found.", HttpStatus.BAD_REQUEST);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HttpStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,33 @@
+package com.anizzzz.testdemo.dto;
+
+import com.anizzzz.testdemo.model.User;
+
+import java.util.List;
+
+public class UserPage {
+    private List<User> content;
+    private String next;
+
+    public UserPage(){}
+
+    public UserPage(List<User> content, String next){
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<User> getContent() {
+        return content;
+    }
+
+    public void setContent(List<User> content) {
+        this.content = content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
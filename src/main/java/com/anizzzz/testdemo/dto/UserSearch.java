@@ -0,0 +1,66 @@
+package com.anizzzz.testdemo.dto;
+
+/**
+ * Filters for GET /user/search, bound from the query string. Every filter is optional; name and
+ * address match case-insensitively, as a prefix unless the match is set to CONTAINS.
+ */
+public class UserSearch {
+    public enum Match { PREFIX, CONTAINS }
+
+    private String name;
+    private Match nameMatch = Match.PREFIX;
+    private String address;
+    private Match addressMatch = Match.PREFIX;
+    private Integer minAge;
+    private Integer maxAge;
+
+    public UserSearch(){}
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Match getNameMatch() {
+        return nameMatch;
+    }
+
+    public void setNameMatch(Match nameMatch) {
+        this.nameMatch = nameMatch;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public Match getAddressMatch() {
+        return addressMatch;
+    }
+
+    public void setAddressMatch(Match addressMatch) {
+        this.addressMatch = addressMatch;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(Integer minAge) {
+        this.minAge = minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Integer maxAge) {
+        this.maxAge = maxAge;
+    }
+}
@@ -0,0 +1,51 @@
+package com.anizzzz.testdemo.dto;
+
+public class WriteStatus {
+    public enum State { PENDING, SAVED, REJECTED, FAILED }
+
+    private String trackingId;
+    private State state;
+    private Integer userId;
+    private String message;
+
+    public WriteStatus(){}
+
+    public WriteStatus(String trackingId, State state, Integer userId, String message){
+        this.trackingId = trackingId;
+        this.state = state;
+        this.userId = userId;
+        this.message = message;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public void setTrackingId(String trackingId) {
+        this.trackingId = trackingId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
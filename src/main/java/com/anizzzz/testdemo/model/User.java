@@ -1,18 +1,41 @@
 package com.anizzzz.testdemo.model;
 
-import javax.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+        uniqueConstraints = @UniqueConstraint(name = "uk_users_name", columnNames = "name"),
+        indexes = @Index(name = "idx_users_age", columnList = "age"))
+@SQLRestriction("deleted_at is null")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 500)
     private int id;
 
     private String name;
     private int age;
     private String address;
 
+    // sent as the ETag of GET /user/{id} and checked against If-Match on PUT, not part of the body;
+    // the column default covers existing rows and the native inserts that don't set it
+    @Version
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int version;
+
+    // tombstone set by deletes in the soft-delete profile; tombstoned rows are invisible to every
+    // entity read and query until UserPurgeJob removes them
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     public User(){}
 
     public User(String name, int age, String address){
@@ -59,4 +82,20 @@ public class User {
     public void setAddress(String address) {
         this.address = address;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
 }
@@ -0,0 +1,73 @@
+package com.anizzzz.testdemo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Outbox row for one user mutation, written in the same transaction as the mutation. The offset is
+ * null until the relay assigns the next one in sequence; from then on it is the position of the
+ * change in the feed at /user/changes.
+ */
+@Entity
+@Table(name = "user_changes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_changes_offset", columnNames = "change_offset"))
+public class UserChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_changes_seq")
+    @SequenceGenerator(name = "user_changes_seq", sequenceName = "user_changes_seq", allocationSize = 500)
+    private long id;
+
+    @Column(name = "change_offset")
+    private Long changeOffset;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    @Column(nullable = false, length = 16)
+    private String type;
+
+    // the attributes the change set, as a JSON object; just the id for a delete
+    @Column(nullable = false, length = 2048)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public UserChange(){}
+
+    public UserChange(int userId, String type, String payload, Instant createdAt){
+        this.userId = userId;
+        this.type = type;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getChangeOffset() {
+        return changeOffset;
+    }
+
+    public void setChangeOffset(Long changeOffset) {
+        this.changeOffset = changeOffset;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,29 @@
+package com.anizzzz.testdemo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Single-row counter behind the ETag of GET /user: every transaction that changes users bumps it
+ * once, just before it commits. Only ever read and written through UserRepository.
+ */
+@Entity
+@Table(name = "user_collection_version")
+public class UserCollectionVersion {
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    @Column(nullable = false)
+    private long version;
+
+    public UserCollectionVersion(){}
+
+    public int getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
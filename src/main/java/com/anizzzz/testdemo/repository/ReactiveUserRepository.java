@@ -0,0 +1,115 @@
+package com.anizzzz.testdemo.repository;
+
+import com.anizzzz.testdemo.model.User;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+    private static final String COLUMNS = "id, name, age, address";
+    // rows tombstoned by a servlet instance running soft-delete on the same database stay
+    // invisible here too, as they are to every JPA read
+    private static final String LIVE = "deleted_at is null";
+    private static final String INSERT_ON_CONFLICT =
+            "insert into users (" + COLUMNS + ") values (:id, :name, :age, :address) on conflict do nothing";
+    private static final String INSERT_WHERE_ABSENT =
+            "insert into users (" + COLUMNS + ") select :id, :name, :age, :address " +
+                    "where not exists (select 1 from users where name = :name)";
+    // must match the allocationSize of users_seq on the JPA side, see User
+    private static final int ID_BLOCK_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+    private final boolean postgres;
+
+    private int nextId;
+    private int maxId = -1;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.postgres = connectionFactory.getMetadata().getName().startsWith("PostgreSQL");
+    }
+
+    public Flux<User> findAll(){
+        return databaseClient.sql("select " + COLUMNS + " from users where " + LIVE + " order by id")
+                .map((row, metadata) -> toUser(row))
+                .all();
+    }
+
+    public Mono<User> findById(int id){
+        return databaseClient.sql("select " + COLUMNS + " from users where id = :id and " + LIVE)
+                .bind("id", id)
+                .map((row, metadata) -> toUser(row))
+                .one();
+    }
+
+    public Mono<Boolean> insertIfNameAbsent(User user){
+        return nextId().flatMap(id -> bindUser(databaseClient.sql(postgres ? INSERT_ON_CONFLICT : INSERT_WHERE_ABSENT), user)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> {
+                    if(rows == 0){
+                        return false;
+                    }
+                    user.setId(id);
+                    return true;
+                }));
+    }
+
+    public Mono<Boolean> update(User user){
+        return bindUser(databaseClient.sql("update users set name = :name, age = :age, address = :address, version = version + 1 where id = :id and " + LIVE), user)
+                .bind("id", user.getId())
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    public Mono<Boolean> deleteById(int id){
+        return databaseClient.sql("delete from users where id = :id and " + LIVE)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    /**
+     * Hands out ids the same way Hibernate's pooled optimizer does, so both stacks can share
+     * users_seq: each sequence value V reserves the block (V - 500, V].
+     */
+    private Mono<Integer> nextId(){
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if(nextId <= maxId){
+                    return Mono.just(nextId++);
+                }
+            }
+            return databaseClient.sql(postgres ? "select nextval('users_seq')" : "select next value for users_seq")
+                    .map((row, metadata) -> row.get(0, Long.class))
+                    .one()
+                    .map(hi -> {
+                        synchronized (this) {
+                            maxId = hi.intValue();
+                            nextId = Math.max(1, maxId - ID_BLOCK_SIZE + 1);
+                            return nextId++;
+                        }
+                    });
+        });
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindUser(DatabaseClient.GenericExecuteSpec spec, User user){
+        spec = spec.bind("age", user.getAge());
+        spec = user.getName() == null ? spec.bindNull("name", String.class) : spec.bind("name", user.getName());
+        return user.getAddress() == null ? spec.bindNull("address", String.class) : spec.bind("address", user.getAddress());
+    }
+
+    private static User toUser(Row row){
+        return new User(row.get("id", Integer.class), row.get("name", String.class),
+                row.get("age", Integer.class), row.get("address", String.class));
+    }
+}
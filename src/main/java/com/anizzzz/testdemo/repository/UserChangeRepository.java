@@ -0,0 +1,44 @@
+package com.anizzzz.testdemo.repository;
+
+import com.anizzzz.testdemo.model.UserChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+    // locked so that relays on two instances never number the same row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<UserChange> findByChangeOffsetIsNullOrderByIdAsc(Pageable pageable);
+
+    @Query("select max(c.changeOffset) from UserChange c")
+    Optional<Long> findLastOffset();
+
+    @Query("select min(c.changeOffset) from UserChange c")
+    Optional<Long> findFirstOffset();
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<UserChange> findByChangeOffsetGreaterThanOrderByChangeOffsetAsc(long offset, Pageable pageable);
+
+    /**
+     * Deletes up to {@code limit} relayed changes created before {@code cutoff}, oldest first.
+     * The last relayed change is always kept, as the relay numbers on from it.
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "delete from user_changes where id in (select id from user_changes " +
+            "where created_at < ?1 and change_offset < (select max(change_offset) from user_changes) " +
+            "order by change_offset limit ?2)")
+    int purge(Instant cutoff, int limit);
+}
@@ -1,10 +1,49 @@
 package com.anizzzz.testdemo.repository;
 
 import com.anizzzz.testdemo.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Integer> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface UserRepository extends JpaRepository<User, Integer>, UserRepositoryCustom {
     Optional<User> findByName(String name);
+
+    // native, as uk_users_name also covers tombstoned rows, which the entity's restriction hides from JPQL
+    @Query(value = "select name from users where name in (:names)", nativeQuery = true)
+    Set<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Modifying
+    @Query("update User u set u.name = :name, u.age = :age, u.address = :address, u.version = u.version + 1 where u.id = :id")
+    int update(@Param("id") int id, @Param("name") String name, @Param("age") int age, @Param("address") String address);
+
+    @Modifying
+    @Query("update User u set u.name = :name, u.age = :age, u.address = :address, u.version = u.version + 1 " +
+            "where u.id = :id and u.version = :version")
+    int updateIfVersion(@Param("id") int id, @Param("name") String name, @Param("age") int age,
+                        @Param("address") String address, @Param("version") int version);
+
+    @Query("select u.id from User u where u.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(int id, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
 }
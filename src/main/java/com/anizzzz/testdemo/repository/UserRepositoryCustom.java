@@ -0,0 +1,63 @@
+package com.anizzzz.testdemo.repository;
+
+import com.anizzzz.testdemo.dto.UserSearch;
+import com.anizzzz.testdemo.model.User;
+import jakarta.persistence.Tuple;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+
+public interface UserRepositoryCustom {
+    /**
+     * Inserts the user in a single statement unless the name is already taken. On success the
+     * generated id is set on {@code user}; otherwise it is left untouched.
+     */
+    boolean insertIfNameAbsent(User user);
+
+    /**
+     * Streams only the given User attributes, in id order, as tuples aliased by attribute name.
+     * No entities are created, so nothing enters the persistence context or gets snapshotted.
+     */
+    Stream<Tuple> streamFields(List<String> fields);
+
+    /**
+     * Up to {@code limit} users matching every filter set on {@code search}, with id greater than
+     * {@code afterId}, in id order.
+     */
+    List<User> search(UserSearch search, int afterId, int limit);
+
+    /**
+     * Sets only the given attributes (and bumps the version) in one UPDATE, without loading the
+     * user; with {@code expectedVersion} only if the row is still at that version. Returns the
+     * number of rows changed.
+     */
+    int patch(int id, Map<String, Object> changes, OptionalInt expectedVersion);
+
+    /**
+     * Deletes the given users in one statement, or with {@code app.users.soft-delete} sets their
+     * tombstone instead. Returns the number of users that were there to delete.
+     */
+    int deleteIds(Collection<Integer> ids);
+
+    /**
+     * Hard-deletes up to {@code limit} users tombstoned before {@code deletedBefore}, oldest first,
+     * and returns how many went.
+     */
+    int purgeDeleted(Instant deletedBefore, int limit);
+
+    /**
+     * A short string that changes whenever users are inserted, updated or deleted: the counter in
+     * user_collection_version, read by primary key. It never repeats, as the counter only grows.
+     */
+    String fingerprint();
+
+    /**
+     * Moves {@link #fingerprint()} on, in the calling transaction. Called once per transaction
+     * that changed users, as it commits; see UserCollectionVersionListener.
+     */
+    void bumpFingerprint();
+}
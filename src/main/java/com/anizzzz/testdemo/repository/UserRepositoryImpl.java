@@ -0,0 +1,201 @@
+package com.anizzzz.testdemo.repository;
+
+import com.anizzzz.testdemo.dto.UserSearch;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.model.UserCollectionVersion;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    private static final String INSERT_ON_CONFLICT =
+            "insert into users (id, name, age, address) values (?1, ?2, ?3, ?4) on conflict do nothing";
+    private static final String INSERT_WHERE_ABSENT =
+            "insert into users (id, name, age, address) select ?1, ?2, ?3, ?4 " +
+                    "where not exists (select 1 from users where name = ?2)";
+    private static final String INSERT_VERSION_ON_CONFLICT =
+            "insert into user_collection_version (id, version) values (?1, 0) on conflict do nothing";
+    private static final String INSERT_VERSION_WHERE_ABSENT =
+            "insert into user_collection_version (id, version) select ?1, 0 " +
+                    "where not exists (select 1 from user_collection_version where id = ?1)";
+    // native, as the entity's restriction hides tombstoned rows from JPQL
+    private static final String PURGE_DELETED =
+            "delete from users where id in " +
+                    "(select id from users where deleted_at < ?1 order by deleted_at limit ?2)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.users.soft-delete:false}")
+    private boolean softDelete;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional
+    public boolean insertIfNameAbsent(User user) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getEntityPersister(null, user).getGenerator();
+        Object id = generator.generate(session, user, null, EventType.INSERT);
+        int inserted = entityManager.createNativeQuery(isPostgres() ? INSERT_ON_CONFLICT : INSERT_WHERE_ABSENT)
+                .setParameter(1, id)
+                .setParameter(2, user.getName())
+                .setParameter(3, user.getAge())
+                .setParameter(4, user.getAddress())
+                .executeUpdate();
+        if(inserted == 0){
+            return false;
+        }
+        user.setId((Integer) id);
+        return true;
+    }
+
+    @Override
+    public Stream<Tuple> streamFields(List<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<User> user = query.from(User.class);
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for(String field : fields){
+            selections.add(user.get(field).alias(field));
+        }
+        query.multiselect(selections).orderBy(builder.asc(user.get("id")));
+        return entityManager.createQuery(query)
+                .setHint(HINT_FETCH_SIZE, 500)
+                .getResultStream();
+    }
+
+    @Override
+    public int patch(int id, Map<String, Object> changes, OptionalInt expectedVersion) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = builder.createCriteriaUpdate(User.class);
+        Root<User> user = update.from(User.class);
+        changes.forEach((field, value) -> update.set(user.get(field), value));
+        Path<Integer> version = user.get("version");
+        update.set(version, builder.sum(version, 1));
+        Predicate byId = builder.equal(user.get("id"), id);
+        update.where(expectedVersion.isPresent() ? builder.and(byId, builder.equal(version, expectedVersion.getAsInt())) : byId);
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public int deleteIds(Collection<Integer> ids) {
+        if(softDelete){
+            return entityManager.createQuery("update User u set u.deletedAt = :now where u.id in :ids and u.deletedAt is null")
+                    .setParameter("now", Instant.now())
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+        return entityManager.createQuery("delete from User u where u.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int purgeDeleted(Instant deletedBefore, int limit) {
+        return entityManager.createNativeQuery(PURGE_DELETED)
+                .setParameter(1, deletedBefore)
+                .setParameter(2, limit)
+                .executeUpdate();
+    }
+
+    @Override
+    public String fingerprint() {
+        List<Long> version = entityManager.createQuery(
+                "select v.version from UserCollectionVersion v where v.id = :id", Long.class)
+                .setParameter("id", UserCollectionVersion.ID)
+                .getResultList();
+        return Long.toString(version.isEmpty() ? 0 : version.get(0), 36);
+    }
+
+    @Override
+    public void bumpFingerprint() {
+        // the users' rows first and the counter last, so writers queue on the counter only to commit
+        entityManager.flush();
+        if(incrementCollectionVersion() == 0){
+            // first write to a database whose schema came from generate-ddl; V3 seeds the row
+            entityManager.createNativeQuery(isPostgres() ? INSERT_VERSION_ON_CONFLICT : INSERT_VERSION_WHERE_ABSENT)
+                    .setParameter(1, UserCollectionVersion.ID)
+                    .executeUpdate();
+            incrementCollectionVersion();
+        }
+    }
+
+    private int incrementCollectionVersion(){
+        return entityManager.createQuery("update UserCollectionVersion v set v.version = v.version + 1 where v.id = :id")
+                .setParameter("id", UserCollectionVersion.ID)
+                .executeUpdate();
+    }
+
+
+    /**
+     * Name and address are compared as lower(column) LIKE pattern, which the trigram indexes in
+     * db/migration/V2__search_indexes.sql serve for both prefix and contains; age uses idx_users_age.
+     */
+    @Override
+    public List<User> search(UserSearch search, int afterId, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = builder.createQuery(User.class);
+        Root<User> user = query.from(User.class);
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.greaterThan(user.get("id"), afterId));
+        if(search.getName() != null && !search.getName().isEmpty()){
+            predicates.add(like(builder, user.get("name"), search.getName(), search.getNameMatch()));
+        }
+        if(search.getAddress() != null && !search.getAddress().isEmpty()){
+            predicates.add(like(builder, user.get("address"), search.getAddress(), search.getAddressMatch()));
+        }
+        if(search.getMinAge() != null){
+            predicates.add(builder.greaterThanOrEqualTo(user.get("age"), search.getMinAge()));
+        }
+        if(search.getMaxAge() != null){
+            predicates.add(builder.lessThanOrEqualTo(user.get("age"), search.getMaxAge()));
+        }
+        query.where(predicates.toArray(new Predicate[0])).orderBy(builder.asc(user.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static Predicate like(CriteriaBuilder builder, Expression<String> column, String value, UserSearch.Match match){
+        String escaped = value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        String pattern = match == UserSearch.Match.CONTAINS ? "%" + escaped + "%" : escaped + "%";
+        return builder.like(builder.lower(column), pattern, '\\');
+    }
+
+    private boolean isPostgres(){
+        if(postgres == null){
+            postgres = entityManager.unwrap(Session.class)
+                    .doReturningWork(connection -> connection.getMetaData().getDatabaseProductName())
+                    .startsWith("PostgreSQL");
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,53 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.ReactiveUserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+    private final ReactiveUserRepository userRepository;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public Flux<User> getAll(){
+        return userRepository.findAll();
+    }
+
+    public Mono<User> getOneById(int id){
+        return userRepository.findById(id);
+    }
+
+    public Mono<ResponseMessage> save(User user){
+        return userRepository.insertIfNameAbsent(user)
+                .onErrorReturn(DataIntegrityViolationException.class, false)
+                .map(saved -> saved
+                        ? new ResponseMessage("Saved", HttpStatus.OK)
+                        : new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST));
+    }
+
+    public Mono<ResponseMessage> update(User user){
+        return userRepository.update(user)
+                .map(updated -> updated
+                        ? new ResponseMessage("Updated", HttpStatus.OK)
+                        : new ResponseMessage("User not found.", HttpStatus.BAD_REQUEST))
+                .onErrorReturn(DataIntegrityViolationException.class,
+                        new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST));
+    }
+
+    public Mono<ResponseMessage> deleteUser(int id){
+        return userRepository.deleteById(id)
+                .map(deleted -> deleted
+                        ? new ResponseMessage("Deleted", HttpStatus.OK)
+                        : new ResponseMessage("User not found.", HttpStatus.BAD_REQUEST));
+    }
+}
@@ -0,0 +1,209 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.model.UserChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Serves the outbox as Server-Sent Events at /user/changes. Every poll-interval one thread relays
+ * newly committed changes (see {@link UserChangeOutbox#relay}) and reads what follows each
+ * subscriber's offset. Subscribers at the same offset, normally everyone who has caught up, share
+ * one query; one that resumed from further back catches up a batch at a time. The event id is
+ * the offset, so a reconnecting EventSource resumes through Last-Event-ID on its own.
+ * <p>
+ * The writes to the clients happen on a pool of {@code senderThreads}, never on the scheduler thread that
+ * the purge jobs, the replica lag check and the index rebuild share. A subscriber keeps at most
+ * one delivery in flight; one whose delivery has not finished after {@code sendTimeout} is
+ * dropped, and its sender thread is freed by the interrupt or by the container's write timeout.
+ */
+public class UserChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(UserChangeFeed.class);
+
+    private final UserChangeOutbox outbox;
+    private final int batchSize;
+    private final Duration retention;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final Clock clock;
+    private final ExecutorService sender;
+    private final Duration sendTimeout;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Counter relayed;
+
+    public UserChangeFeed(UserChangeOutbox outbox, int batchSize, Duration retention, Duration timeout,
+                          Duration heartbeat, Clock clock, int senderThreads, Duration sendTimeout,
+                          MeterRegistry meterRegistry) {
+        this.outbox = outbox;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        this.clock = clock;
+        this.sender = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("user-changes-send-"));
+        this.sendTimeout = sendTimeout;
+        this.relayed = Counter.builder("user.changes.relayed")
+                .description("Outbox changes given an offset by the relay")
+                .register(meterRegistry);
+        Gauge.builder("user.changes.subscribers", subscribers, List::size)
+                .description("Open /user/changes streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the changes after {@code after}, or of changes from now on without it.
+     * If changes after {@code after} have already been purged, the stream starts with a
+     * {@code reset} event and the consumer has to rescan the users it follows.
+     */
+    public SseEmitter subscribe(OptionalLong after) throws IOException {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, after.isPresent() ? after.getAsLong() : outbox.lastOffset(),
+                clock.instant());
+        long first = outbox.firstOffset();
+        if(subscriber.offset < first - 1){
+            subscriber.offset = first - 1;
+            emitter.send(SseEmitter.event().id(Long.toString(subscriber.offset)).name("reset")
+                    .data("Changes up to this offset are no longer kept."));
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.users.changes.poll-interval:200}")
+    public void poll(){
+        try {
+            int numbered;
+            do {
+                numbered = outbox.relay(batchSize);
+                relayed.increment(numbered);
+            } while(numbered == batchSize);
+        } catch (DataAccessException e) {
+            // another instance numbered the same offsets first; what is left is picked up next time
+            log.debug("relay lost a race, retrying on the next poll: {}", e.toString());
+        }
+        publish();
+    }
+
+    private void publish(){
+        Instant now = clock.instant();
+        Map<Long, List<Subscriber>> byOffset = new HashMap<>();
+        for(Subscriber subscriber : subscribers){
+            Future<?> delivery = subscriber.delivery;
+            if(delivery == null || delivery.isDone()){
+                byOffset.computeIfAbsent(subscriber.offset, k -> new ArrayList<>()).add(subscriber);
+            } else if(subscriber.deliveringSince.plus(sendTimeout).isBefore(now)){
+                // a client that stopped reading; it reconnects with Last-Event-ID if it is still there
+                log.debug("dropping a /user/changes subscriber stuck in a send since {}", subscriber.deliveringSince);
+                subscribers.remove(subscriber);
+                delivery.cancel(true);
+            }
+        }
+        Instant idleSince = now.minus(heartbeat);
+        for(Map.Entry<Long, List<Subscriber>> group : byOffset.entrySet()){
+            List<UserChange> changes = outbox.changesAfter(group.getKey(), batchSize);
+            for(Subscriber subscriber : group.getValue()){
+                // an idle stream gets a comment line, which keeps proxies from closing it and finds
+                // clients that have gone away
+                if(!changes.isEmpty() || subscriber.lastSent.isBefore(idleSince)){
+                    subscriber.deliveringSince = now;
+                    subscriber.delivery = sender.submit(() -> deliver(subscriber, changes));
+                }
+            }
+        }
+    }
+
+    // runs on the sender pool; a subscriber that is behind goes on catching up a batch at a time
+    private void deliver(Subscriber subscriber, List<UserChange> changes){
+        if(changes.isEmpty()){
+            send(subscriber, SseEmitter.event().comment("keep-alive"));
+            return;
+        }
+        while(send(subscriber, changes) && changes.size() == batchSize && !Thread.currentThread().isInterrupted()){
+            changes = outbox.changesAfter(subscriber.offset, batchSize);
+        }
+    }
+
+    private boolean send(Subscriber subscriber, List<UserChange> changes){
+        for(UserChange change : changes){
+            if(!send(subscriber, SseEmitter.event()
+                    .id(Long.toString(change.getChangeOffset()))
+                    .name(change.getType())
+                    .data(change.getPayload(), MediaType.APPLICATION_JSON))){
+                return false;
+            }
+            subscriber.offset = change.getChangeOffset();
+        }
+        return true;
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event){
+        try {
+            subscriber.emitter.send(event);
+            subscriber.lastSent = clock.instant();
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // the client went away or the emitter already completed
+            subscribers.remove(subscriber);
+            return false;
+        }
+    }
+
+    // called by the container on shutdown, as the bean's inferred destroy method
+    public void close(){
+        sender.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.users.changes.purge-interval:60000}")
+    public int purge(){
+        Instant cutoff = clock.instant().minus(retention);
+        int total = 0;
+        int batch;
+        do {
+            batch = outbox.purge(cutoff, batchSize);
+            total += batch;
+        } while(batch == batchSize);
+        if(total > 0){
+            log.info("purged {} user changes created before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private volatile long offset;
+        private volatile Instant lastSent;
+        // set by the polling thread only
+        private volatile Future<?> delivery;
+        private volatile Instant deliveringSince;
+
+        Subscriber(SseEmitter emitter, long offset, Instant lastSent) {
+            this.emitter = emitter;
+            this.offset = offset;
+            this.lastSent = lastSent;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.model.UserChange;
+import com.anizzzz.testdemo.repository.UserChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Transactional outbox for the changes profile: every {@link UserChangedEvent} is written to
+ * user_changes by the transaction that made the change, so a change is in the outbox if and only
+ * if it committed. {@link #relay} then gives committed changes their offsets, one relay at a
+ * time: the unique offset makes a relay that raced another fail instead of reusing or skipping
+ * an offset, so offsets become visible strictly in order and a reader resuming after offset n
+ * never misses a change.
+ */
+@Component
+@Profile("changes")
+public class UserChangeOutbox {
+    private final UserChangeRepository userChangeRepository;
+    private final ObjectMapper objectMapper;
+
+    public UserChangeOutbox(UserChangeRepository userChangeRepository, ObjectMapper objectMapper) {
+        this.userChangeRepository = userChangeRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onUserChanged(UserChangedEvent event){
+        userChangeRepository.save(new UserChange(event.getId(), event.getType().name(), payload(event), Instant.now()));
+    }
+
+    String payload(UserChangedEvent event){
+        ObjectNode payload = objectMapper.createObjectNode().put("id", event.getId());
+        if(event.hasName()){
+            payload.put("name", event.getName());
+        }
+        if(event.hasAge()){
+            payload.put("age", event.getAge());
+        }
+        if(event.hasAddress()){
+            payload.put("address", event.getAddress());
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Numbers up to {@code limit} committed changes, in the order they were written, after the
+     * last offset given out. Returns how many were numbered.
+     */
+    @Transactional
+    public int relay(int limit){
+        List<UserChange> pending = userChangeRepository.findByChangeOffsetIsNullOrderByIdAsc(PageRequest.of(0, limit));
+        if(pending.isEmpty()){
+            return 0;
+        }
+        // read after the rows are locked, so it includes whatever a relay we waited on numbered
+        long offset = userChangeRepository.findLastOffset().orElse(0L);
+        for(UserChange change : pending){
+            change.setChangeOffset(++offset);
+        }
+        return pending.size();
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserChange> changesAfter(long offset, int limit){
+        return userChangeRepository.findByChangeOffsetGreaterThanOrderByChangeOffsetAsc(offset, PageRequest.of(0, limit));
+    }
+
+    /** The offset of the latest relayed change, 0 before there is any. */
+    @Transactional(readOnly = true)
+    public long lastOffset(){
+        return userChangeRepository.findLastOffset().orElse(0L);
+    }
+
+    /** The offset of the oldest change still kept, 1 before there is any. */
+    @Transactional(readOnly = true)
+    public long firstOffset(){
+        return userChangeRepository.findFirstOffset().orElse(1L);
+    }
+
+    public int purge(Instant cutoff, int limit){
+        return userChangeRepository.purge(cutoff, limit);
+    }
+}
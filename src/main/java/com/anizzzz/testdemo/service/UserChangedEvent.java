@@ -0,0 +1,90 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.model.User;
+
+import java.util.Map;
+
+/**
+ * Published by UserService for every user it creates, updates or deletes, from inside the
+ * write transaction; listeners that only want committed changes use @TransactionalEventListener.
+ * An update from a patch only carries the attributes the patch set; see {@link #hasName()}.
+ */
+public class UserChangedEvent {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final int id;
+    private final String name;
+    private final int age;
+    private final String address;
+    private final boolean hasName;
+    private final boolean hasAge;
+    private final boolean hasAddress;
+
+    public UserChangedEvent(Type type, int id, String name, int age) {
+        this(type, id, name, true, age, true, null, false);
+    }
+
+    private UserChangedEvent(Type type, int id, String name, boolean hasName, int age, boolean hasAge,
+                             String address, boolean hasAddress) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.age = age;
+        this.address = address;
+        this.hasName = hasName;
+        this.hasAge = hasAge;
+        this.hasAddress = hasAddress;
+    }
+
+    static UserChangedEvent of(Type type, User user){
+        return new UserChangedEvent(type, user.getId(), user.getName(), true, user.getAge(), true,
+                user.getAddress(), true);
+    }
+
+    static UserChangedEvent deleted(int id){
+        return new UserChangedEvent(Type.DELETED, id, null, false, 0, false, null, false);
+    }
+
+    static UserChangedEvent patched(int id, Map<String, Object> changes){
+        Object age = changes.get("age");
+        return new UserChangedEvent(Type.UPDATED, id, (String) changes.get("name"), changes.containsKey("name"),
+                age == null ? 0 : (Integer) age, changes.containsKey("age"),
+                (String) changes.get("address"), changes.containsKey("address"));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /** False when a patch left the name alone, in which case {@link #getName()} means nothing. */
+    public boolean hasName() {
+        return hasName;
+    }
+
+    /** False when a patch left the age alone, in which case {@link #getAge()} means nothing. */
+    public boolean hasAge() {
+        return hasAge;
+    }
+
+    /** False when a patch left the address alone, or the event doesn't carry it. */
+    public boolean hasAddress() {
+        return hasAddress;
+    }
+}
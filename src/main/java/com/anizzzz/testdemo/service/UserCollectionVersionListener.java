@@ -0,0 +1,46 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the ETag of GET /user current. The first {@link UserChangedEvent} of a transaction
+ * registers one bump of user_collection_version for just before that transaction commits, so the
+ * tag moves once per transaction, atomically with the change, and a batch of 500 inserts costs a
+ * single extra update. Writes made around UserService, like the reactive stack's, don't move it.
+ */
+@Component
+@Profile("!reactive")
+public class UserCollectionVersionListener {
+    private final UserRepository userRepository;
+
+    public UserCollectionVersionListener(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onUserChanged(UserChangedEvent event){
+        if(TransactionSynchronizationManager.hasResource(this)){
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                userRepository.bumpFingerprint();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(UserCollectionVersionListener.this);
+            }
+        });
+    }
+}
@@ -0,0 +1,253 @@
+package com.anizzzz.testdemo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongBidirectionalIterator;
+import it.unimi.dsi.fastutil.longs.LongRBTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process copy of the name and age columns, keyed by id, for lookups that must not wait on the
+ * database. Built from a projection at startup, then kept current from committed
+ * {@link UserChangedEvent}s. Writes made by anything other than this instance's UserService are
+ * not seen until the next rebuild, every {@code app.users.index.rebuild-interval};
+ * {@link UserIndexEndpoint} reports that drift. So a name found here is only a hint that it is
+ * taken, to be confirmed against the database.
+ *
+ * <p>Ages are held as one sorted set of longs, (age << 32 | id), so the ids of one age are in id
+ * order, a page of them is a seek to the cursor, and no Integer or User objects are kept per row.
+ */
+@Component
+@Profile("index")
+public class UserIndex implements ApplicationRunner {
+    private static final List<String> FIELDS = List.of("id", "name", "age");
+
+    private final UserService userService;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong changesSinceRebuild = new AtomicLong();
+
+    private Entries entries = new Entries();
+    private List<UserChangedEvent> changesDuringRebuild;
+    private volatile Instant builtAt;
+
+    public UserIndex(UserService userService, MeterRegistry meterRegistry) {
+        this.userService = userService;
+        Gauge.builder("user.index.entries", this, UserIndex::size).register(meterRegistry);
+        Gauge.builder("user.index.staleness", this, index -> index.sinceRebuild().toMillis() / 1000.0)
+                .description("Time since the index was last rebuilt from the database")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    /**
+     * Reloads every row into fresh structures and swaps them in. Changes committed while the
+     * table is being read are replayed onto the new copy, since the read may have missed them.
+     */
+    @Scheduled(initialDelayString = "${app.users.index.rebuild-interval:300000}",
+            fixedDelayString = "${app.users.index.rebuild-interval:300000}")
+    public void rebuild(){
+        write(() -> changesDuringRebuild = new ArrayList<>());
+        Entries fresh = new Entries();
+        try {
+            userService.forEachProjection(FIELDS, row ->
+                    fresh.put(row.get(0, Integer.class), row.get(1, String.class), row.get(2, Integer.class)));
+        } catch (RuntimeException e) {
+            write(() -> changesDuringRebuild = null);
+            throw e;
+        }
+        write(() -> {
+            changesDuringRebuild.forEach(fresh::apply);
+            changesDuringRebuild = null;
+            entries = fresh;
+            builtAt = Instant.now();
+            changesSinceRebuild.set(0);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event){
+        write(() -> {
+            entries.apply(event);
+            if(changesDuringRebuild != null){
+                changesDuringRebuild.add(event);
+            }
+        });
+        changesSinceRebuild.incrementAndGet();
+    }
+
+    public OptionalInt idOf(String name){
+        lock.readLock().lock();
+        try {
+            return entries.idsByName.containsKey(name) ? OptionalInt.of(entries.idsByName.getInt(name)) : OptionalInt.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first {@code limit} ids above {@code afterId}, in id order, of users aged {@code minAge}
+     * to {@code maxAge} inclusive. Seeks to {@code afterId} within each age present in the range
+     * and merges from there, so a page costs one seek per age rather than a walk of the range.
+     */
+    public int[] idsByAge(int minAge, int maxAge, int afterId, int limit){
+        if(minAge > maxAge || limit <= 0){
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            PriorityQueue<AgeCursor> ages = new PriorityQueue<>(Comparator.comparingInt(AgeCursor::id));
+            LongSortedSet rest = entries.byAge.tailSet((long) minAge << 32);
+            while(!rest.isEmpty()){
+                int age = (int) (rest.firstLong() >> 32);
+                if(age > maxAge){
+                    break;
+                }
+                long from = afterId < 0 ? Entries.key(age, 0) : Entries.key(age, afterId) + 1;
+                LongSortedSet ids = age == Integer.MAX_VALUE ? rest.tailSet(from)
+                        : rest.subSet(from, (long) (age + 1) << 32);
+                if(!ids.isEmpty()){
+                    ages.add(new AgeCursor(ids.iterator()));
+                }
+                if(age == Integer.MAX_VALUE){
+                    break;
+                }
+                rest = rest.tailSet((long) (age + 1) << 32);
+            }
+            int[] page = new int[Math.min(limit, entries.byAge.size())];
+            int size = 0;
+            while(size < limit && !ages.isEmpty()){
+                AgeCursor next = ages.poll();
+                page[size++] = next.id();
+                if(next.advance()){
+                    ages.add(next);
+                }
+            }
+            return Arrays.copyOf(page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size(){
+        lock.readLock().lock();
+        try {
+            return entries.namesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public long getChangesSinceRebuild() {
+        return changesSinceRebuild.get();
+    }
+
+    Duration sinceRebuild(){
+        return builtAt == null ? Duration.ZERO : Duration.between(builtAt, Instant.now());
+    }
+
+    private void write(Runnable action){
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the ids of one age from the cursor on, positioned at the smallest one not yet taken
+    private static final class AgeCursor {
+        private final LongBidirectionalIterator keys;
+        private int id;
+
+        AgeCursor(LongBidirectionalIterator keys) {
+            this.keys = keys;
+            this.id = (int) keys.nextLong();
+        }
+
+        int id(){
+            return id;
+        }
+
+        boolean advance(){
+            if(!keys.hasNext()){
+                return false;
+            }
+            id = (int) keys.nextLong();
+            return true;
+        }
+    }
+
+    static final class Entries {
+        final Object2IntOpenHashMap<String> idsByName = new Object2IntOpenHashMap<>();
+        final Int2ObjectOpenHashMap<String> namesById = new Int2ObjectOpenHashMap<>();
+        final Int2IntOpenHashMap agesById = new Int2IntOpenHashMap();
+        final LongRBTreeSet byAge = new LongRBTreeSet();
+
+        void apply(UserChangedEvent event){
+            int id = event.getId();
+            boolean partial = !event.hasName() || !event.hasAge();
+            if(partial && !namesById.containsKey(id)){
+                // a patch of a user we don't hold; the next rebuild picks it up
+                return;
+            }
+            String name = event.hasName() ? event.getName() : namesById.get(id);
+            int age = event.hasAge() ? event.getAge() : agesById.get(id);
+            remove(id);
+            if(event.getType() != UserChangedEvent.Type.DELETED){
+                put(id, name, age);
+            }
+        }
+
+        void put(int id, String name, int age){
+            idsByName.put(name, id);
+            namesById.put(id, name);
+            agesById.put(id, age);
+            byAge.add(key(age, id));
+        }
+
+        void remove(int id){
+            if(!namesById.containsKey(id)){
+                return;
+            }
+            String name = namesById.remove(id);
+            if(idsByName.getInt(name) == id){
+                idsByName.removeInt(name);
+            }
+            byAge.remove(key(agesById.remove(id), id));
+        }
+
+        static long key(int age, int id){
+            return (long) age << 32 | (id & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/userindex: how far the in-memory index may be behind. {@code drift} compares it with
+ * a count of the table, so writes that bypassed this instance show up there; POST rebuilds it.
+ */
+@Component
+@Profile("index")
+@Endpoint(id = "userindex")
+public class UserIndexEndpoint {
+    private final UserIndex userIndex;
+    private final UserRepository userRepository;
+
+    public UserIndexEndpoint(UserIndex userIndex, UserRepository userRepository) {
+        this.userIndex = userIndex;
+        this.userRepository = userRepository;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status(){
+        int entries = userIndex.size();
+        long rows = userRepository.count();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("entries", entries);
+        status.put("databaseRows", rows);
+        status.put("drift", rows - entries);
+        status.put("builtAt", userIndex.getBuiltAt());
+        status.put("secondsSinceRebuild", userIndex.sinceRebuild().getSeconds());
+        status.put("changesSinceRebuild", userIndex.getChangesSinceRebuild());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild(){
+        userIndex.rebuild();
+        return status();
+    }
+}
@@ -0,0 +1,54 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Hard-deletes users whose tombstone is older than the retention, in batches of at most
+ * batch-size rows, each in its own short transaction, so a large cleanup never holds locks on
+ * many rows at once or builds one huge transaction.
+ */
+public class UserPurgeJob {
+    private static final Logger log = LoggerFactory.getLogger(UserPurgeJob.class);
+
+    private final UserRepository userRepository;
+    private final Duration retention;
+    private final int batchSize;
+    private final Clock clock;
+    private final Counter purged;
+
+    public UserPurgeJob(UserRepository userRepository, Duration retention, int batchSize, Clock clock,
+                        MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.purged = Counter.builder("user.purged")
+                .description("Tombstoned users removed by the purge job")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.users.purge-interval:60000}")
+    public int purge(){
+        Instant cutoff = clock.instant().minus(retention);
+        int total = 0;
+        int batch;
+        do {
+            batch = userRepository.purgeDeleted(cutoff, batchSize);
+            purged.increment(batch);
+            total += batch;
+        } while(batch == batchSize);
+        if(total > 0){
+            log.info("purged {} users deleted before {}", total, cutoff);
+        }
+        return total;
+    }
+}
@@ -1,54 +1,457 @@
 package com.anizzzz.testdemo.service;
 
+import com.anizzzz.testdemo.config.CacheConfig;
+import com.anizzzz.testdemo.dto.BatchItemResult;
 import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserLookupResult;
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.dto.UserSearch;
 import com.anizzzz.testdemo.model.User;
 import com.anizzzz.testdemo.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!reactive")
+@Timed("user.service")
 public class UserService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int BATCH_CHUNK_SIZE = 500;
+    public static final int MAX_LOOKUP_SIZE = 10000;
+    public static final List<String> FIELDS = List.of("id", "name", "age", "address");
+
     private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher events;
+    private final ObjectProvider<UserIndex> userIndex;
+    private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, EntityManager entityManager,
+                       ApplicationEventPublisher events, ObjectProvider<UserIndex> userIndex, CacheManager cacheManager) {
         this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.events = events;
+        this.userIndex = userIndex;
+        this.cacheManager = cacheManager;
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAll(){
         return userRepository.findAll();
     }
 
+    /**
+     * Walks the whole table on a forward-only cursor, detaching each row once it has been
+     * handed to the consumer so the persistence context does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<User> action){
+        try(Stream<User> users = userRepository.streamAll()){
+            users.forEach(user -> {
+                action.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    /**
+     * Like {@link #forEachUser} but reads only the requested columns into tuples, skipping entity
+     * hydration altogether.
+     */
+    @Transactional(readOnly = true)
+    public void forEachProjection(List<String> fields, Consumer<Tuple> action){
+        try(Stream<Tuple> rows = userRepository.streamFields(fields)){
+            rows.forEach(action);
+        }
+    }
+
+    /**
+     * Parses a comma separated {@code fields} parameter into User attribute names, in the order
+     * given. Empty when it names nothing or anything that isn't a User attribute.
+     */
+    public static Optional<List<String>> parseFields(String fields){
+        List<String> parsed = new ArrayList<>();
+        for(String field : fields.split(",")){
+            String name = field.trim();
+            if(!FIELDS.contains(name)){
+                return Optional.empty();
+            }
+            if(!parsed.contains(name)){
+                parsed.add(name);
+            }
+        }
+        return Optional.of(parsed);
+    }
+
+    /**
+     * ETag for the whole collection; see {@link UserRepository#fingerprint()}. With {@code fields}
+     * the projected attributes are part of the tag, as each projection is its own representation.
+     */
+    @Transactional(readOnly = true)
+    public String getCollectionTag(List<String> fields){
+        String fingerprint = userRepository.fingerprint();
+        return fields.equals(FIELDS) ? fingerprint : fingerprint + "-" + String.join(".", fields);
+    }
+
+    /**
+     * Keyset page: seeks past the id carried by the cursor instead of using an offset, so
+     * every page costs the same index range scan. Empty when the cursor can't be decoded.
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserPage> getPage(String cursor, int size){
+        return keysetPage(cursor, size,
+                (after, limit) -> userRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit)));
+    }
+
+    /** Filtered variant of {@link #getPage}, paged the same way. */
+    @Transactional(readOnly = true)
+    public Optional<UserPage> search(UserSearch search, String cursor, int size){
+        UserIndex index = userIndex.getIfAvailable();
+        if(index != null && isAgeOnly(search)){
+            int minAge = search.getMinAge() == null ? Integer.MIN_VALUE : search.getMinAge();
+            int maxAge = search.getMaxAge() == null ? Integer.MAX_VALUE : search.getMaxAge();
+            return indexedAgePage(index, minAge, maxAge, cursor, size);
+        }
+        return keysetPage(cursor, size, (after, limit) -> userRepository.search(search, after, limit));
+    }
+
+    private static boolean isAgeOnly(UserSearch search){
+        return (search.getName() == null || search.getName().isEmpty())
+                && (search.getAddress() == null || search.getAddress().isEmpty())
+                && (search.getMinAge() != null || search.getMaxAge() != null);
+    }
+
+    /**
+     * The index can still hold users deleted or re-aged since its last rebuild, which the primary
+     * key lookup drops. So a short page is topped up with the next ids from the index, and the
+     * cursor carries the last id the index handed out rather than the last user loaded.
+     */
+    private Optional<UserPage> indexedAgePage(UserIndex index, int minAge, int maxAge, String cursor, int size){
+        Optional<Integer> after = decodePageCursor(cursor);
+        if(!after.isPresent()){
+            return Optional.empty();
+        }
+        int limit = pageLimit(size);
+        List<User> users = new ArrayList<>(limit);
+        int last = after.get();
+        while(users.size() < limit){
+            int wanted = limit - users.size();
+            int[] ids = index.idsByAge(minAge, maxAge, last, wanted);
+            if(ids.length > 0){
+                last = ids[ids.length - 1];
+                for(User user : findAllById(ids)){
+                    if(user.getAge() >= minAge && user.getAge() <= maxAge){
+                        users.add(user);
+                    }
+                }
+            }
+            if(ids.length < wanted){
+                return Optional.of(new UserPage(users, null));
+            }
+        }
+        return Optional.of(new UserPage(users, encodeCursor(last)));
+    }
+
+    // the given ids, loaded by primary key in id order
+    private List<User> findAllById(int[] ids){
+        List<User> users = new ArrayList<>(userRepository.findAllById(IntStream.of(ids).boxed().toList()));
+        users.sort(Comparator.comparingInt(User::getId));
+        return users;
+    }
+
+    private static Optional<UserPage> keysetPage(String cursor, int size, BiFunction<Integer, Integer, List<User>> query){
+        Optional<Integer> after = decodePageCursor(cursor);
+        if(!after.isPresent()){
+            return Optional.empty();
+        }
+        int limit = pageLimit(size);
+        List<User> users = query.apply(after.get(), limit);
+        String next = users.size() < limit ? null : encodeCursor(users.get(users.size() - 1).getId());
+        return Optional.of(new UserPage(users, next));
+    }
+
+    private static Optional<Integer> decodePageCursor(String cursor){
+        return cursor == null || cursor.isEmpty() ? Optional.of(0) : decodeCursor(cursor);
+    }
+
+    private static int pageLimit(int size){
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Not a read-only transaction, as what is read here gets cached: a replica could still hand
+     * back the row an update has just evicted, and it would be served until the entry expires.
+     */
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#id", unless = "#result == null")
+    @Transactional
     public Optional<User> getOneById(int id){
         return userRepository.findById(id);
     }
 
+    /**
+     * Multi-get: one result per requested id, in the order given, with a not-found marker for ids
+     * that don't exist (or are null). Users in the users cache are taken from there; the rest are
+     * loaded {@link #BATCH_CHUNK_SIZE} ids at a time, one {@code where id in (...)} each, and cached;
+     * from the primary, like {@link #getOneById}.
+     */
+    @Transactional
+    public List<UserLookupResult> getAllById(List<Integer> ids){
+        Cache cache = cacheManager.getCache(CacheConfig.USERS);
+        Map<Integer, User> found = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        for(Integer id : ids){
+            if(id == null || found.containsKey(id) || missing.contains(id)){
+                continue;
+            }
+            User cached = cache == null ? null : cache.get(id, User.class);
+            if(cached != null){
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        List<Integer> load = new ArrayList<>(missing);
+        for(int from = 0; from < load.size(); from += BATCH_CHUNK_SIZE){
+            for(User user : userRepository.findAllById(load.subList(from, Math.min(load.size(), from + BATCH_CHUNK_SIZE)))){
+                found.put(user.getId(), user);
+                if(cache != null){
+                    cache.put(user.getId(), user);
+                }
+            }
+        }
+        List<UserLookupResult> results = new ArrayList<>(ids.size());
+        for(Integer id : ids){
+            User user = id == null ? null : found.get(id);
+            results.add(user == null ? UserLookupResult.notFound(id) : UserLookupResult.found(user));
+        }
+        return results;
+    }
+
+    /**
+     * Whether a user, live or tombstoned, has the name. Asked of the primary, so it can confirm
+     * what {@link UserIndex} only hints at.
+     */
+    @Transactional
+    public boolean isNameTaken(String name){
+        return !userRepository.findExistingNames(Set.of(name)).isEmpty();
+    }
+
+    /**
+     * Inserts the user unless the name is taken. Transactional so that whatever listens to the
+     * CREATED event inside the transaction, like the outbox, commits together with the insert.
+     * The insert checks the name itself, so {@link UserIndex} is not consulted.
+     */
+    @Transactional
     public ResponseMessage save(User user){
-        Optional<User> user1 = userRepository.findByName(user.getName());
-        if(!user1.isPresent()){
-            userRepository.save(user);
-            return new ResponseMessage("Saved", HttpStatus.OK);
+        try {
+            if(userRepository.insertIfNameAbsent(user)){
+                events.publishEvent(UserChangedEvent.of(UserChangedEvent.Type.CREATED, user));
+                return new ResponseMessage("Saved", HttpStatus.OK);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent insert of the same name won the race on uk_users_name
+            return duplicateName();
         }
         return new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST);
     }
 
+    // the statement that hit uk_users_name left the transaction rollback-only; rolling back
+    // ourselves keeps the commit from failing on that mark
+    private static ResponseMessage duplicateName(){
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        return new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Saves one chunk of a bulk upload in a single transaction: one set-based lookup for
+     * names that already exist, then a JDBC-batched insert of the rest. {@code offset} is
+     * the position of the chunk in the upload and is used to number the per-item report.
+     */
+    @Transactional
+    public List<BatchItemResult> saveBatch(List<User> users, int offset){
+        if(users.isEmpty()){
+            return new ArrayList<>();
+        }
+        Set<String> names = new HashSet<>();
+        users.forEach(user -> names.add(user.getName()));
+        Set<String> taken = new HashSet<>(userRepository.findExistingNames(names));
+
+        List<User> toInsert = new ArrayList<>();
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for(int i = 0; i < users.size(); i++){
+            User user = users.get(i);
+            if(taken.add(user.getName())){
+                // ids come from users_seq; saveAll would merge a client-supplied one over that row
+                user.setId(0);
+                toInsert.add(user);
+                results.add(new BatchItemResult(offset + i, null, "Saved", HttpStatus.OK));
+            } else {
+                results.add(new BatchItemResult(offset + i, null, "Duplicate User name.", HttpStatus.BAD_REQUEST));
+            }
+        }
+        userRepository.saveAll(toInsert);
+        userRepository.flush();
+        entityManager.clear();
+
+        int inserted = 0;
+        for(BatchItemResult result : results){
+            if(result.getStatus() == HttpStatus.OK){
+                result.setId(toInsert.get(inserted++).getId());
+            }
+        }
+        toInsert.forEach(user -> events.publishEvent(UserChangedEvent.of(UserChangedEvent.Type.CREATED, user)));
+        return results;
+    }
+
+    /**
+     * Overwrites the user with a single UPDATE, without reading the row first. A name taken by
+     * another user is left to uk_users_name and answered like a duplicate on save.
+     */
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#user.id")
+    @Transactional
     public ResponseMessage update(User user){
-        Optional<User> user1 = userRepository.findById(user.getId());
-        if(user1.isPresent()){
-            userRepository.save(user);
+        int updated;
+        try {
+            updated = userRepository.update(user.getId(), user.getName(), user.getAge(), user.getAddress());
+        } catch (DataIntegrityViolationException e) {
+            return duplicateName();
+        }
+        return updated(UserChangedEvent.of(UserChangedEvent.Type.UPDATED, user), updated, false);
+    }
+
+    /**
+     * Updates the user only if the row is still at {@code expectedVersion}, again in a single
+     * UPDATE. When nothing matched, an existence check tells a stale write from a missing user.
+     */
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#user.id")
+    @Transactional
+    public ResponseMessage update(User user, int expectedVersion){
+        int updated;
+        try {
+            updated = userRepository.updateIfVersion(user.getId(), user.getName(), user.getAge(), user.getAddress(),
+                    expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            return duplicateName();
+        }
+        return updated(UserChangedEvent.of(UserChangedEvent.Type.UPDATED, user), updated, true);
+    }
+
+    /**
+     * Writes only the attributes in {@code changes} (any of name, age, address), without loading
+     * the user; see {@link UserRepository#patch}. A taken name is a duplicate, as for update.
+     */
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id")
+    @Transactional
+    public ResponseMessage patch(int id, Map<String, Object> changes, OptionalInt expectedVersion){
+        int updated;
+        try {
+            updated = userRepository.patch(id, changes, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            return duplicateName();
+        }
+        return updated(UserChangedEvent.patched(id, changes), updated, expectedVersion.isPresent());
+    }
+
+    private ResponseMessage updated(UserChangedEvent event, int updated, boolean conditional){
+        // the existence check runs in the write transaction so it sees the primary, not a replica
+        if(updated == 0 && conditional && userRepository.existsById(event.getId())){
+            return new ResponseMessage("User has been modified.", HttpStatus.PRECONDITION_FAILED);
+        }
+        if(updated > 0){
+            events.publishEvent(event);
             return new ResponseMessage("Updated", HttpStatus.OK);
         }
         return new ResponseMessage("User not found.", HttpStatus.BAD_REQUEST);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id")
+    @Transactional
     public ResponseMessage deleteUser(int id){
-        Optional<User> user = getOneById(id);
-        if(user.isPresent()){
-            userRepository.delete(user.get());
+        if(userRepository.deleteIds(List.of(id)) > 0){
+            events.publishEvent(UserChangedEvent.deleted(id));
             return new ResponseMessage("Deleted", HttpStatus.OK);
         }
         return new ResponseMessage("User not found.", HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Deletes one chunk of a bulk delete in a single transaction: one lookup of which ids exist,
+     * then one set-based delete of those. {@code offset} numbers the per-item report as in
+     * {@link #saveBatch}.
+     */
+    @Transactional
+    public List<BatchItemResult> deleteBatch(List<Integer> ids, int offset){
+        if(ids.isEmpty()){
+            return new ArrayList<>();
+        }
+        Set<Integer> found = new HashSet<>(userRepository.findExistingIds(new HashSet<>(ids)));
+        if(!found.isEmpty()){
+            userRepository.deleteIds(found);
+        }
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+        Set<Integer> deleted = new HashSet<>();
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for(int i = 0; i < ids.size(); i++){
+            Integer id = ids.get(i);
+            if(found.contains(id) && deleted.add(id)){
+                if(users != null){
+                    users.evict(id);
+                }
+                events.publishEvent(UserChangedEvent.deleted(id));
+                results.add(new BatchItemResult(offset + i, id, "Deleted", HttpStatus.OK));
+            } else {
+                results.add(new BatchItemResult(offset + i, id, "User not found.", HttpStatus.BAD_REQUEST));
+            }
+        }
+        return results;
+    }
+
+    static String encodeCursor(int id){
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Integer.toString(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static Optional<Integer> decodeCursor(String cursor){
+        try {
+            return Optional.of(Integer.parseInt(
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
 }
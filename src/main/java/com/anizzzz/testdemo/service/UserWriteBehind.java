@@ -0,0 +1,258 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.dto.BatchItemResult;
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.WriteStatus;
+import com.anizzzz.testdemo.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jctools.queues.MpscArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind for POST /user in the write-behind profile. A request only checks the user and
+ * offers it to a bounded lock-free MPSC queue; one writer thread drains the queue and saves
+ * whatever has piled up through {@link UserService#saveBatch} in one transaction, so a burst of
+ * signups shares commits instead of queueing on them.
+ *
+ * <p>With durability {@code ACCEPTED} the request is answered with 202 as soon as the user is
+ * queued, and the outcome is polled by tracking id; queued users are still written on a graceful
+ * shutdown but lost if the process dies first. With {@code COMMITTED} the request waits for its
+ * batch to commit (group commit) and gets the same answer a synchronous save would give.
+ */
+@Component
+@Profile("write-behind")
+public class UserWriteBehind implements SmartLifecycle {
+    public enum Durability { ACCEPTED, COMMITTED }
+
+    private static final Logger log = LoggerFactory.getLogger(UserWriteBehind.class);
+    // stop after the web server has stopped taking requests, so everything accepted gets written
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final UserService userService;
+    private final ObjectProvider<UserIndex> userIndex;
+    private final MpscArrayQueue<PendingWrite> queue;
+    private final Cache<String, WriteStatus> statuses;
+    private final int batchSize;
+    private final Durability durability;
+    private final Duration commitTimeout;
+    private final DistributionSummary batches;
+
+    private volatile boolean running;
+    private volatile boolean idle;
+    private volatile Thread writer;
+
+    public UserWriteBehind(UserService userService, ObjectProvider<UserIndex> userIndex, MeterRegistry meterRegistry,
+                           @Value("${app.users.write-behind.capacity:10000}") int capacity,
+                           @Value("${app.users.write-behind.batch-size:500}") int batchSize,
+                           @Value("${app.users.write-behind.durability:ACCEPTED}") Durability durability,
+                           @Value("${app.users.write-behind.commit-timeout:5s}") Duration commitTimeout,
+                           @Value("${app.users.write-behind.status-retention:10m}") Duration statusRetention) {
+        this.userService = userService;
+        this.userIndex = userIndex;
+        this.queue = new MpscArrayQueue<>(capacity);
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusRetention)
+                .maximumSize(capacity * 10L)
+                .build();
+        this.batchSize = batchSize;
+        this.durability = durability;
+        this.commitTimeout = commitTimeout;
+        this.batches = DistributionSummary.builder("user.write_behind.batch")
+                .description("Users saved per write-behind transaction")
+                .register(meterRegistry);
+        Gauge.builder("user.write_behind.queue", queue, MpscArrayQueue::size)
+                .description("Users accepted but not yet written")
+                .register(meterRegistry);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Queues the user for the writer. Empty when the queue is full or the writer has stopped;
+     * a user whose name the index knows, and the database confirms as taken, is rejected right
+     * away, without being queued.
+     */
+    public Optional<PendingWrite> submit(User user){
+        UserIndex index = userIndex.getIfAvailable();
+        if(index != null && index.idOf(user.getName()).isPresent() && userService.isNameTaken(user.getName())){
+            PendingWrite rejected = new PendingWrite(UUID.randomUUID().toString(), user, false);
+            rejected.complete(new WriteStatus(rejected.trackingId, WriteStatus.State.REJECTED, null, "Duplicate User name."));
+            return Optional.of(rejected);
+        }
+        PendingWrite write = new PendingWrite(UUID.randomUUID().toString(), user, true);
+        if(!running){
+            return Optional.empty();
+        }
+        // recorded before the writer can see the write, so its final status can't be overwritten
+        statuses.put(write.trackingId, new WriteStatus(write.trackingId, WriteStatus.State.PENDING, null, null));
+        if(!queue.offer(write)){
+            statuses.invalidate(write.trackingId);
+            return Optional.empty();
+        }
+        if(idle){
+            LockSupport.unpark(writer);
+        }
+        return Optional.of(write);
+    }
+
+    /**
+     * Waits up to commit-timeout for the write's batch to commit; still PENDING if it didn't.
+     */
+    public WriteStatus await(PendingWrite write){
+        try {
+            return write.outcome.get(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return write.status();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return write.status();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public Optional<WriteStatus> status(String trackingId){
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    private void drain(){
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while(running || !queue.isEmpty()){
+            queue.drain(batch::add, batchSize);
+            if(batch.isEmpty()){
+                idle = true;
+                if(queue.isEmpty() && running){
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingWrite> batch){
+        List<User> users = new ArrayList<>(batch.size());
+        batch.forEach(write -> users.add(write.user));
+        List<BatchItemResult> results;
+        try {
+            results = userService.saveBatch(users, 0);
+        } catch (RuntimeException e) {
+            // one insert failed the whole transaction, e.g. a name taken after the batch's duplicate
+            // check; the others shouldn't fail with it
+            log.warn("write-behind batch of {} failed, saving one at a time: {}", users.size(), e.toString());
+            results = saveEach(users);
+        }
+        batches.record(users.size());
+        for(int i = 0; i < batch.size(); i++){
+            PendingWrite write = batch.get(i);
+            BatchItemResult result = results.get(i);
+            WriteStatus.State state = result.getStatus() == HttpStatus.OK ? WriteStatus.State.SAVED
+                    : result.getStatus() == HttpStatus.BAD_REQUEST ? WriteStatus.State.REJECTED : WriteStatus.State.FAILED;
+            WriteStatus status = new WriteStatus(write.trackingId, state, result.getId(), result.getMessage());
+            statuses.put(write.trackingId, status);
+            write.complete(status);
+        }
+    }
+
+    private List<BatchItemResult> saveEach(List<User> users){
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for(int i = 0; i < users.size(); i++){
+            User user = users.get(i);
+            try {
+                ResponseMessage response = userService.save(user);
+                Integer id = response.getStatus() == HttpStatus.OK ? user.getId() : null;
+                results.add(new BatchItemResult(i, id, response.getMessage(), response.getStatus()));
+            } catch (RuntimeException e) {
+                log.error("write-behind save of {} failed", user.getName(), e);
+                results.add(new BatchItemResult(i, null, "Save failed.", HttpStatus.INTERNAL_SERVER_ERROR));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("user-write-behind").start(this::drain);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("write-behind stopped, {} users left unwritten", queue.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public static final class PendingWrite {
+        private final String trackingId;
+        private final User user;
+        private final boolean queued;
+        private final CompletableFuture<WriteStatus> outcome = new CompletableFuture<>();
+
+        PendingWrite(String trackingId, User user, boolean queued) {
+            this.trackingId = trackingId;
+            this.user = user;
+            this.queued = queued;
+        }
+
+        public String getTrackingId() {
+            return trackingId;
+        }
+
+        /** False for a user rejected up front, whose status is final and not kept for polling. */
+        public boolean isQueued() {
+            return queued;
+        }
+
+        /** The final status once written, PENDING until then. */
+        public WriteStatus status(){
+            return outcome.getNow(new WriteStatus(trackingId, WriteStatus.State.PENDING, null, null));
+        }
+
+        void complete(WriteStatus status){
+            outcome.complete(status);
+        }
+    }
+}
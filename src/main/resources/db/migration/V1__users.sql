@@ -0,0 +1,29 @@
+-- The schema Hibernate generated from the entities with spring.jpa.generate-ddl, written down.
+-- Databases that were already running on generated DDL are baselined at version 0 (see
+-- application-migrate.properties), so this runs on them too and only adds what is missing.
+create sequence if not exists users_seq start with 1 increment by 500;
+create table if not exists users (
+    id integer not null,
+    name varchar(255),
+    age integer not null,
+    address varchar(255),
+    version integer default 0 not null,
+    deleted_at timestamp(6) with time zone,
+    primary key (id),
+    constraint uk_users_name unique (name)
+);
+alter table users add column if not exists version integer default 0 not null;
+alter table users add column if not exists deleted_at timestamp(6) with time zone;
+create index if not exists idx_users_age on users (age);
+
+create sequence if not exists user_changes_seq start with 1 increment by 500;
+create table if not exists user_changes (
+    id bigint not null,
+    change_offset bigint,
+    user_id integer not null,
+    type varchar(16) not null,
+    payload varchar(2048) not null,
+    created_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint uk_user_changes_offset unique (change_offset)
+);
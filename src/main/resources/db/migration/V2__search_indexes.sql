@@ -0,0 +1,11 @@
+-- GIN trigram indexes serve lower(name|address) LIKE 'x%' and LIKE '%x%' from /user/search;
+-- pg_trgm is a trusted extension, so the database owner can create it.
+-- Built concurrently so a populated users table keeps taking writes meanwhile, which means this
+-- migration runs outside a transaction (spring.flyway.mixed). A build that fails leaves an
+-- invalid index behind that "if not exists" would skip: drop it before migrating again.
+create extension if not exists pg_trgm;
+create index concurrently if not exists idx_users_name_trgm on users using gin (lower(name) gin_trgm_ops);
+create index concurrently if not exists idx_users_address_trgm on users using gin (lower(address) gin_trgm_ops);
+-- Not a search index, but Postgres-only as well: a partial index over just the tombstoned rows
+-- keeps the soft-delete purge from scanning the table.
+create index concurrently if not exists idx_users_deleted_at on users (deleted_at) where deleted_at is not null;
@@ -0,0 +1,7 @@
+-- Counter behind the ETag of GET /user, bumped by every transaction that changes users.
+create table if not exists user_collection_version (
+    id integer not null,
+    version bigint not null,
+    primary key (id)
+);
+insert into user_collection_version (id, version) values (1, 0) on conflict do nothing;
@@ -0,0 +1,11 @@
+create sequence if not exists users_seq start with 1 increment by 500;
+create table if not exists users (
+    id integer not null primary key,
+    name varchar(255),
+    age integer not null,
+    address varchar(255),
+    version integer default 0 not null,
+    deleted_at timestamp(6) with time zone,
+    constraint uk_users_name unique (name)
+);
+alter table users add column if not exists deleted_at timestamp(6) with time zone;
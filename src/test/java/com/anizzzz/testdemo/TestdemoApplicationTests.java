@@ -2,8 +2,12 @@ package com.anizzzz.testdemo;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 
 @SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:context-loads;DB_CLOSE_DELAY=-1")
 class TestdemoApplicationTests {
 
     @Test
@@ -0,0 +1,87 @@
+package com.anizzzz.testdemo.config;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+    private static final long HEALTHY = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    public void rejectsOnceLimitIsReached(){
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 1.5, 0.2, 10);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release(HEALTHY);
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    public void whenSaturatedAtSteadyLatency_limitGrows(){
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 1.5, 0.2, 10);
+        for(int window = 0; window < 20; window++){
+            saturatedWindow(limit, HEALTHY);
+        }
+        assertTrue(limit.getLimit() > 20);
+    }
+
+    @Test
+    public void whenLatencyRises_limitShrinksTowardsMinimum(){
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 4, 100, 1.5, 0.2, 10);
+        for(int window = 0; window < 5; window++){
+            saturatedWindow(limit, HEALTHY);
+        }
+        int healthy = limit.getLimit();
+        for(int window = 0; window < 5; window++){
+            saturatedWindow(limit, HEALTHY * 10);
+        }
+        assertTrue(limit.getLimit() < healthy / 2);
+        for(int window = 0; window < 30; window++){
+            saturatedWindow(limit, HEALTHY * 10);
+        }
+        assertTrue(limit.getLimit() >= 4);
+    }
+
+    @Test
+    public void whenLatencySlightlyAboveTolerance_limitConvergesToMinimum(){
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 4, 100, 1.5, 0.2, 10);
+        saturatedWindow(limit, HEALTHY);
+        // a gradient of about 0.9 every window, before the baseline has drifted up to the new latency
+        for(int window = 0; window < 20; window++){
+            saturatedWindow(limit, HEALTHY * 17 / 10);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void whenFarBelowLimit_limitStays(){
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 4, 100, 1.5, 0.2, 10);
+        for(int i = 0; i < 200; i++){
+            limit.tryAcquire();
+            limit.release(i < 100 ? HEALTHY : HEALTHY * 10);
+        }
+        assertEquals(50, limit.getLimit());
+    }
+
+    // one window's worth of requests, all in flight together up to the current limit
+    private static void saturatedWindow(AdaptiveConcurrencyLimit limit, long latencyNanos){
+        int released = 0;
+        while(released < 10){
+            int acquired = 0;
+            while(limit.tryAcquire()){
+                acquired++;
+            }
+            for(int i = 0; i < acquired; i++){
+                limit.release(latencyNanos);
+            }
+            released += acquired;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.anizzzz.testdemo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrencyLimitFilterTest {
+    private AdaptiveConcurrencyLimit reads;
+    private AdaptiveConcurrencyLimit writes;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @Before
+    public void setUp(){
+        reads = new AdaptiveConcurrencyLimit(1, 1, 1, 1.5, 0.2, 10);
+        writes = new AdaptiveConcurrencyLimit(1, 1, 1, 1.5, 0.2, 10);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(reads, writes, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.TOO_MANY_REQUESTS,
+                new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    public void whenReadLimitReached_nextReadIsShedWith503() throws Exception {
+        MockHttpServletResponse nested = whileHolding("GET", "GET", "/user/1");
+
+        assertEquals(503, nested.getStatus());
+        assertEquals("1", nested.getHeader("Retry-After"));
+        assertEquals("{\"message\":\"Too many requests in flight.\",\"status\":\"SERVICE_UNAVAILABLE\"}",
+                nested.getContentAsString());
+        assertEquals(1.0, meterRegistry.counter("user.concurrency.rejected", "kind", "read").count(), 0);
+        assertEquals(0, reads.getInFlight());
+    }
+
+    @Test
+    public void whenWriteLimitReached_nextWriteIsShedWith429() throws Exception {
+        MockHttpServletResponse nested = whileHolding("POST", "PUT", "/user");
+
+        assertEquals(429, nested.getStatus());
+        assertEquals(1.0, meterRegistry.counter("user.concurrency.rejected", "kind", "write").count(), 0);
+    }
+
+    @Test
+    public void readsAndWritesHaveSeparateLimits() throws Exception {
+        MockHttpServletResponse nested = whileHolding("POST", "GET", "/user/1");
+
+        assertEquals(200, nested.getStatus());
+    }
+
+    @Test
+    public void lookupCountsAsRead() throws Exception {
+        MockHttpServletResponse nested = whileHolding("GET", "POST", "/user/lookup");
+
+        assertEquals(503, nested.getStatus());
+    }
+
+    @Test
+    public void changeFeedIsNotLimited() throws Exception {
+        MockHttpServletResponse nested = whileHolding("GET", "GET", "/user/changes");
+
+        assertEquals(200, nested.getStatus());
+        assertEquals(0.0, meterRegistry.counter("user.concurrency.rejected", "kind", "read").count(), 0);
+    }
+
+    // sends `outer`, and while it holds its slot sends `inner` to the given path
+    private MockHttpServletResponse whileHolding(String outer, String inner, String innerPath) throws Exception {
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        filter.doFilter(new MockHttpServletRequest(outer, "/user"), new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+                MockHttpServletResponse second = new MockHttpServletResponse();
+                filter.doFilter(new MockHttpServletRequest(inner, innerPath), second, new MockFilterChain());
+                nested.set(second);
+            }
+        });
+        return nested.get();
+    }
+}
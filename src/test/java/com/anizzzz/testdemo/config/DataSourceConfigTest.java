@@ -0,0 +1,23 @@
+package com.anizzzz.testdemo.config;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DataSourceConfigTest {
+
+    @Test
+    public void poolSize_boundByCores(){
+        assertEquals(9, DataSourceConfig.poolSize(4, 100, 10, 1));
+    }
+
+    @Test
+    public void poolSize_boundByDatabaseShare(){
+        assertEquals(15, DataSourceConfig.poolSize(16, 100, 10, 6));
+    }
+
+    @Test
+    public void poolSize_neverBelowTwo(){
+        assertEquals(2, DataSourceConfig.poolSize(8, 20, 10, 10));
+    }
+}
@@ -0,0 +1,76 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "fast-start", "soft-delete"})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fast-start;DB_CLOSE_DELAY=-1",
+        // no migrations on H2; the schema is generated and then validated like a migrated one
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+public class FastStartIntegrationTest {
+    @Autowired
+    private ConfigurableApplicationContext context;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StartupWarmup startupWarmup;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @After
+    public void cleanUp(){
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void beansAreLazyExceptScheduledOnes(){
+        assertTrue(context.getBeanFactory().getBeanDefinition("userController").isLazyInit());
+        assertTrue(context.getBeanFactory().containsSingleton("userPurgeJob"));
+        assertFalse(context.containsBean("searchIndexes"));
+    }
+
+    @Test
+    public void whenWarmedUp_firstPageIsCachedAndReadinessIsUp() throws Exception {
+        List<User> users = userRepository.saveAll(List.of(new User("Ram Shrestha", 34, "Kathmandu"),
+                new User("Hari Kumar", 45, "Lalitpur")));
+
+        assertTrue(startupWarmup.warmUp());
+
+        assertEquals(Status.UP, startupWarmup.health().getStatus());
+        assertEquals(2, startupWarmup.health().getDetails().get("cachedUsers"));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS).get(users.get(0).getId()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+}
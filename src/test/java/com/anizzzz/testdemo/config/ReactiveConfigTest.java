@@ -0,0 +1,28 @@
+package com.anizzzz.testdemo.config;
+
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class ReactiveConfigTest {
+
+    @Test
+    public void whenCombinedWithReactiveOnlyProfiles_start(){
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("reactive", "virtual");
+        new ReactiveConfig(environment);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCombinedWithSoftDelete_failStartup(){
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("reactive", "soft-delete");
+        new ReactiveConfig(environment);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenCombinedWithChanges_failStartup(){
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("reactive", "changes");
+        new ReactiveConfig(environment);
+    }
+}
@@ -0,0 +1,132 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import com.anizzzz.testdemo.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica; the replica is written to
+ * directly, with rows the primary doesn't have, so every read shows where it was routed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles({"test", "replica"})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replicas[0].url=" + ReplicaRoutingIntegrationTest.REPLICA_URL,
+        "app.datasource.replicas[0].username=sa",
+        "app.datasource.lag-query=select lag_seconds from replica_lag",
+        "app.datasource.lag-check-interval=3600000"
+})
+public class ReplicaRoutingIntegrationTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private DataSource primaryDataSource;
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    private User primaryUser;
+
+    @Before
+    public void init(){
+        replica.execute("create table if not exists users (id integer primary key, name varchar(255), age integer not null, address varchar(255), version integer default 0 not null, deleted_at timestamp with time zone)");
+        replica.execute("create table if not exists replica_lag (lag_seconds integer)");
+        replica.update("delete from users");
+        replica.update("delete from replica_lag");
+        replica.update("insert into replica_lag values (0)");
+        replica.update("insert into users (id, name, age, address) values (1, 'Replica User', 30, 'Pokhara')");
+
+        userRepository.deleteAllInBatch();
+        primaryUser = userRepository.save(new User("Primary User", 40, "Kathmandu"));
+    }
+
+    @Test
+    public void whenReplicaCaughtUp_readOnlyGoesToReplica(){
+        replicaLagMonitor.check();
+        double before = routed("replica-0", "read");
+
+        assertEquals(Collections.singletonList("Replica User"), names(userService.getAll()));
+        assertEquals(before + 1, routed("replica-0", "read"), 0);
+    }
+
+    @Test
+    public void whenReplicaLags_readOnlyFallsBackToPrimary(){
+        replica.update("update replica_lag set lag_seconds = 60");
+        replicaLagMonitor.check();
+        double before = routed("primary", "fallback");
+
+        assertEquals(Collections.singletonList("Primary User"), names(userService.getAll()));
+        assertEquals(before + 1, routed("primary", "fallback"), 0);
+        assertEquals(60.0, meterRegistry.get("datasource.replica.lag").tag("replica", "replica-0").gauge().value(), 0);
+    }
+
+    @Test
+    public void whenLagCheckFails_readOnlyFallsBackToPrimary(){
+        replicaLagMonitor.check();
+        replica.execute("drop table replica_lag");
+        replicaLagMonitor.check();
+
+        assertEquals(Collections.singletonList("Primary User"), names(userService.getAll()));
+    }
+
+    @Test
+    public void whenReadingIntoCache_goToPrimary(){
+        replicaLagMonitor.check();
+        Cache users = cacheManager.getCache(CacheConfig.USERS);
+
+        users.clear();
+        assertEquals("Primary User", userService.getOneById(primaryUser.getId()).get().getName());
+        users.clear();
+        assertEquals("Primary User", userService.getAllById(List.of(primaryUser.getId())).get(0).getUser().getName());
+    }
+
+    @Test
+    public void whenWriting_goToPrimary(){
+        replicaLagMonitor.check();
+
+        userService.save(new User("Written User", 20, "Lalitpur"));
+
+        assertEquals(Integer.valueOf(1), new JdbcTemplate(primaryDataSource)
+                .queryForObject("select count(*) from users where name = 'Written User'", Integer.class));
+        assertEquals(Integer.valueOf(0), replica
+                .queryForObject("select count(*) from users where name = 'Written User'", Integer.class));
+    }
+
+    private double routed(String route, String reason){
+        return meterRegistry.get("datasource.routes").tag("route", route).tag("reason", reason).counter().count();
+    }
+
+    private static List<String> names(List<User> users){
+        return users.stream().map(User::getName).collect(Collectors.toList());
+    }
+}
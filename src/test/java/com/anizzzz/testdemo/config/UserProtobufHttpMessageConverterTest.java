@@ -0,0 +1,81 @@
+package com.anizzzz.testdemo.config;
+
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.model.User;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import org.junit.Test;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UserProtobufHttpMessageConverterTest {
+    private final UserProtobufHttpMessageConverter converter = new UserProtobufHttpMessageConverter();
+
+    @Test
+    public void writeUser_readBack() throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(new User(500, "Ram Shrestha", 34, "Kathmandu"), UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, output);
+
+        User user = (User) converter.read(User.class, new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertEquals(500, user.getId());
+        assertEquals("Ram Shrestha", user.getName());
+        assertEquals(34, user.getAge());
+        assertEquals("Kathmandu", user.getAddress());
+    }
+
+    @Test
+    public void writePage_usersThenNext() throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(new UserPage(List.of(new User(500, "Ram Shrestha", 34, null), new User(501, "Hari Kumar", 45, "Kathmandu")), "NTAx"),
+                UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF, output);
+
+        CodedInputStream in = CodedInputStream.newInstance(output.getBodyAsBytes());
+        assertEquals(1, in.readTag() >>> 3);
+        User first = UserProtobufHttpMessageConverter.readUser(CodedInputStream.newInstance(in.readByteArray()));
+        assertEquals("Ram Shrestha", first.getName());
+        assertNull(first.getAddress());
+        assertEquals(1, in.readTag() >>> 3);
+        assertEquals(501, UserProtobufHttpMessageConverter.readUser(CodedInputStream.newInstance(in.readByteArray())).getId());
+        assertEquals(2, in.readTag() >>> 3);
+        assertEquals("NTAx", in.readString());
+        assertTrue(in.isAtEnd());
+    }
+
+    @Test
+    public void readUser_skipUnknownFields() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(body);
+        out.writeString(2, "Sita Rai");
+        out.writeInt64(9, 42L);
+        out.writeString(1, "not an id");
+        out.writeInt32(3, 31);
+        out.flush();
+
+        User user = (User) converter.read(User.class, new MockHttpInputMessage(body.toByteArray()));
+        assertEquals("Sita Rai", user.getName());
+        assertEquals(0, user.getId());
+        assertEquals(31, user.getAge());
+    }
+
+    @Test(expected = HttpMessageNotReadableException.class)
+    public void readUser_truncated() throws IOException {
+        converter.read(User.class, new MockHttpInputMessage(new byte[]{0x12, 0x08, 'S', 'i'}));
+    }
+
+    @Test
+    public void readsOnlyUsers(){
+        assertTrue(converter.canRead(User.class, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertFalse(converter.canRead(UserPage.class, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        assertTrue(converter.canWrite(UserPage.class, UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+    }
+}
@@ -0,0 +1,123 @@
+package com.anizzzz.testdemo.controller;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.ReactiveUserService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.isA;
+
+@RunWith(SpringRunner.class)
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+public class ReactiveUserControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    private List<User> userList;
+
+    @Before
+    public void init(){
+        userList = Stream
+                .of(new User(500, "Ram Shrestha", 34, "Kathmandu"),
+                        new User(501, "Hari Kumar", 45, "Kathmandu")).collect(Collectors.toList());
+    }
+
+    @Test
+    public void getAllUsersTest(){
+        Mockito.when(userService.getAll()).thenReturn(Flux.fromIterable(userList));
+
+        webTestClient.get().uri("/user").accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].name").isEqualTo("Hari Kumar");
+    }
+
+    @Test
+    public void getAllUsers_Empty_Test(){
+        Mockito.when(userService.getAll()).thenReturn(Flux.empty());
+
+        webTestClient.get().uri("/user").accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    @Test
+    public void getUserById_Test(){
+        User user = userList.get(0);
+        Mockito.when(userService.getOneById(user.getId())).thenReturn(Mono.just(user));
+
+        webTestClient.get().uri("/user/{id}", 500).accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Ram Shrestha");
+    }
+
+    @Test
+    public void getUserById_NotPresent_Test(){
+        Mockito.when(userService.getOneById(400)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/user/{id}", 400).accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void whenSaveUser_DuplicateUser_return400(){
+        Mockito.when(userService.save(isA(User.class)))
+                .thenReturn(Mono.just(new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST)));
+
+        webTestClient.post().uri("/user").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(userList.get(0))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Duplicate User name.");
+    }
+
+    @Test
+    public void whenUserUpdate_return200(){
+        Mockito.when(userService.update(isA(User.class)))
+                .thenReturn(Mono.just(new ResponseMessage("Updated", HttpStatus.OK)));
+
+        webTestClient.put().uri("/user").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(userList.get(0))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.message").isEqualTo("Updated");
+    }
+
+    @Test
+    public void whenUserDelete_return400(){
+        Mockito.when(userService.deleteUser(500))
+                .thenReturn(Mono.just(new ResponseMessage("User not found.", HttpStatus.BAD_REQUEST)));
+
+        webTestClient.delete().uri("/user/{id}", 500)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("User not found.");
+    }
+}
@@ -0,0 +1,143 @@
+package com.anizzzz.testdemo.controller;
+
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.service.UserChangeFeed;
+import com.anizzzz.testdemo.service.UserService;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "changes"})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-changes;DB_CLOSE_DELAY=-1",
+        // the tests poll and purge by hand
+        "app.users.changes.poll-interval=3600000",
+        "app.users.changes.purge-interval=3600000",
+        "app.users.changes.retention=0s"
+})
+public class UserChangeFeedIntegrationTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserChangeFeed userChangeFeed;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @After
+    public void cleanUp(){
+        jdbcTemplate.update("delete from users");
+        jdbcTemplate.update("delete from user_changes");
+    }
+
+    @Test
+    public void whenUsersChange_streamEachChangeWithItsOffset() throws Exception {
+        MvcResult stream = subscribe(null);
+        userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+        int id = jdbcTemplate.queryForObject("select id from users where name = 'Ram Shrestha'", Integer.class);
+        userService.patch(id, Map.of("address", "Pokhara"), OptionalInt.empty());
+        userService.deleteUser(id);
+        userChangeFeed.poll();
+
+        String body = awaitBody(stream, "event:DELETED");
+        long offset = firstOffset();
+        assertEquals("id:" + offset + "\nevent:CREATED\ndata:{\"id\":" + id + ",\"name\":\"Ram Shrestha\",\"age\":34,\"address\":\"Kathmandu\"}\n\n"
+                + "id:" + (offset + 1) + "\nevent:UPDATED\ndata:{\"id\":" + id + ",\"address\":\"Pokhara\"}\n\n"
+                + "id:" + (offset + 2) + "\nevent:DELETED\ndata:{\"id\":" + id + "}\n\n", body);
+    }
+
+    @Test
+    public void whenResumedFromLastEventId_streamOnlyLaterChanges() throws Exception {
+        userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+        userService.save(new User("Hari Kumar", 45, "Kathmandu"));
+        userChangeFeed.poll();
+
+        MvcResult stream = subscribe(Long.toString(firstOffset()));
+        userChangeFeed.poll();
+
+        String body = awaitBody(stream, "Hari Kumar");
+        assertFalse(body.contains("Ram Shrestha"));
+        assertTrue(body.contains("Hari Kumar"));
+    }
+
+    @Test
+    public void whenTransactionRollsBack_leaveNoChange(){
+        transactionTemplate.executeWithoutResult(status -> {
+            userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from user_changes", Integer.class));
+    }
+
+    @Test
+    public void whenResumedBeforePurgedChanges_sendReset() throws Exception {
+        userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+        userService.save(new User("Hari Kumar", 45, "Kathmandu"));
+        userChangeFeed.poll();
+        long first = firstOffset();
+        assertEquals(1, userChangeFeed.purge());
+
+        MvcResult stream = subscribe(Long.toString(first - 1));
+        userChangeFeed.poll();
+
+        String body = awaitBody(stream, "event:CREATED");
+        assertTrue(body.startsWith("id:" + first + "\nevent:reset\n"));
+        assertTrue(body.contains("id:" + (first + 1) + "\nevent:CREATED\n"));
+        assertFalse(body.contains("Ram Shrestha"));
+    }
+
+    @Test
+    public void whenLastEventIdMalformed_return400() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/user/changes").header("Last-Event-ID", "nope"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        return mockMvc.perform(lastEventId == null ? MockMvcRequestBuilders.get("/user/changes")
+                        : MockMvcRequestBuilders.get("/user/changes").header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    // the feed writes to subscribers on its own threads, after poll has returned
+    private static String awaitBody(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String body = stream.getResponse().getContentAsString();
+        while(!body.contains(expected) && System.nanoTime() < deadline){
+            Thread.sleep(10);
+            body = stream.getResponse().getContentAsString();
+        }
+        return body;
+    }
+
+    private long firstOffset(){
+        return jdbcTemplate.queryForObject("select min(change_offset) from user_changes", Long.class);
+    }
+}
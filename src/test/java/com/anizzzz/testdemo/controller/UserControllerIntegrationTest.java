@@ -3,6 +3,7 @@ package com.anizzzz.testdemo.controller;
 import com.anizzzz.testdemo.dto.ResponseMessage;
 import com.anizzzz.testdemo.model.User;
 import com.anizzzz.testdemo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,20 +11,29 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
-import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.*;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
-@TestPropertySource(locations = "classpath:application-test.properties")
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:user-controller;DB_CLOSE_DELAY=-1")
 public class UserControllerIntegrationTest {
     @LocalServerPort
     private int port;
@@ -149,6 +159,54 @@ public class UserControllerIntegrationTest {
         assertNotNull(response.getBody());
     }
 
+    @Test
+    public void whenGzipAccepted_compressStreamedList() throws Exception {
+        userRepository.saveAll(IntStream.range(0, 100)
+                .mapToObj(i -> new User("Bulk User " + i, 20 + i % 40, "Lalitpur"))
+                .collect(Collectors.toList()));
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(createURLWithPort("/user"))).header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        try(GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))){
+            assertEquals(104, new ObjectMapper().readValue(body, User[].class).length);
+        }
+    }
+
+    @Test
+    public void whenResponseBelowThreshold_leaveUncompressed() throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(createURLWithPort("/user/" + userList.get(0).getId())))
+                        .header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+    }
+
+    @Test
+    public void whenClientAsksForHttp2_upgradeToH2c() throws Exception {
+        HttpResponse<String> response = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build().send(
+                HttpRequest.newBuilder(URI.create(createURLWithPort("/user/page?size=2"))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_2, response.version());
+    }
+
+    @Test
+    public void whenPatchedToTakenName_return400() throws Exception {
+        User user = userList.get(1);
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(createURLWithPort("/user/" + user.getId())))
+                        .header("Content-Type", UserController.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\": \"Ram Shrestha\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+        assertEquals("Duplicate User name.", new ObjectMapper().readTree(response.body()).get("message").asText());
+        assertEquals("Hari Kumar", userRepository.findById(user.getId()).get().getName());
+    }
+
     @After
     public void cleanUp(){
         userRepository.deleteAll();
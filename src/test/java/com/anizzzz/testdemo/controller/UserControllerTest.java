@@ -1,18 +1,31 @@
 package com.anizzzz.testdemo.controller;
 
+import com.anizzzz.testdemo.config.UserProtobufHttpMessageConverter;
+import com.anizzzz.testdemo.dto.BatchItemResult;
 import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserLookupResult;
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.dto.UserSearch;
 import com.anizzzz.testdemo.model.User;
 import com.anizzzz.testdemo.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.Matchers;
-import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -20,23 +33,41 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import jakarta.persistence.Tuple;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(UserController.class)
+@Import(SimpleMeterRegistry.class)
 public class UserControllerTest {
     @Autowired
     private MockMvc mockMvc;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @MockBean
     private UserService userService;
@@ -48,32 +79,161 @@ public class UserControllerTest {
         userList = Stream
                 .of(new User(500, "Ram Shrestha", 34, "Kathmandu"),
                         new User(501, "Hari Kumar", 45, "Kathmandu")).collect(Collectors.toList());
+        Mockito.when(userService.getCollectionTag(Mockito.anyList())).thenReturn("2-1ll-0");
     }
 
     @Test
     public void getAllUsersTest() throws Exception {
-        Mockito.when(userService.getAll()).thenReturn(Collections.emptyList());
+        Mockito.doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            userList.forEach(action);
+            return null;
+        }).when(userService).forEachUser(isA(Consumer.class));
         MvcResult result = mockMvc.perform(
                 MockMvcRequestBuilders.get("/user")
                 .accept(MediaType.APPLICATION_JSON)
-        ).andReturn();
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[1].name", Matchers.is("Hari Kumar")))
+                .andExpect(header().string("ETag", "W/\"2-1ll-0\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+        Mockito.verify(userService, Mockito.times(1)).forEachUser(isA(Consumer.class));
+    }
+
+    @Test
+    public void getAllUsers_IfNoneMatch_return304() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user")
+                .header("If-None-Match", "\"1-dx-0\", W/\"2-1ll-0\"")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"2-1ll-0\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+        Mockito.verify(userService, Mockito.never()).forEachUser(isA(Consumer.class));
+    }
+
+    @Test
+    public void getAllUsers_Fields_writeOnlyThose() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Consumer<Tuple> action = invocation.getArgument(1);
+            userList.forEach(user -> {
+                Tuple row = Mockito.mock(Tuple.class);
+                Mockito.when(row.get(0)).thenReturn(user.getId());
+                Mockito.when(row.get(1)).thenReturn(user.getName());
+                action.accept(row);
+            });
+            return null;
+        }).when(userService).forEachProjection(Mockito.eq(Arrays.asList("id", "name")), isA(Consumer.class));
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/user").param("fields", "id,name")
+                .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[1].id", Matchers.is(501)))
+                .andExpect(jsonPath("$[1].name", Matchers.is("Hari Kumar")))
+                .andExpect(jsonPath("$[1].age").doesNotExist());
+    }
+
+    @Test
+    public void getAllUsers_UnknownField_return400() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user").param("fields", "id,password")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isBadRequest());
+        Mockito.verify(userService, Mockito.never()).forEachProjection(Mockito.anyList(), isA(Consumer.class));
+    }
+
+    @Test
+    public void searchUsers_bindFilters() throws Exception {
+        ArgumentCaptor<UserSearch> search = ArgumentCaptor.forClass(UserSearch.class);
+        Mockito.when(userService.search(search.capture(), Mockito.isNull(), Mockito.eq(10)))
+                .thenReturn(Optional.of(new UserPage(userList.subList(1, 2), null)));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user/search")
+                .param("name", "hari").param("addressMatch", "CONTAINS").param("address", "mandu")
+                .param("minAge", "40").param("size", "10")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name", Matchers.is("Hari Kumar")));
+        assertEquals("hari", search.getValue().getName());
+        assertEquals(UserSearch.Match.PREFIX, search.getValue().getNameMatch());
+        assertEquals(UserSearch.Match.CONTAINS, search.getValue().getAddressMatch());
+        assertEquals(Integer.valueOf(40), search.getValue().getMinAge());
+        assertNull(search.getValue().getMaxAge());
+    }
+
+    @Test
+    public void searchUsers_UnknownMatch_return400() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user/search").param("name", "hari").param("nameMatch", "FUZZY")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getUserPage_Test() throws Exception {
+        Mockito.when(userService.getPage(null, 2)).thenReturn(Optional.of(new UserPage(userList, "NTAx")));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user/page").param("size", "2")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.next", Matchers.is("NTAx")));
+    }
 
-        Assert.assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
-        Mockito.verify(userService, Mockito.times(1)).getAll();
+    @Test
+    public void getUserPage_InvalidCursor_Test() throws Exception {
+        Mockito.when(userService.getPage("bogus", UserService.DEFAULT_PAGE_SIZE)).thenReturn(Optional.empty());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user/page").param("cursor", "bogus")
+                .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isBadRequest());
     }
 
     @Test
     public void getUserById_Test() throws Exception {
         User user = userList.get(0);
+        user.setVersion(3);
         Mockito.when(userService.getOneById(user.getId())).thenReturn(Optional.of(user));
         mockMvc.perform(
                 MockMvcRequestBuilders.get("/user/{id}", 500)
                 .accept(MediaType.APPLICATION_JSON)
-        ).andExpect(status().isOk());
+        ).andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
 
         Mockito.verify(userService, Mockito.times(1)).getOneById(user.getId());
     }
 
+    @Test
+    public void getUserById_IfNoneMatch_return304() throws Exception {
+        User user = userList.get(0);
+        user.setVersion(3);
+        Mockito.when(userService.getOneById(user.getId())).thenReturn(Optional.of(user));
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user/{id}", 500)
+                .header("If-None-Match", "\"3\"")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().string(""));
+    }
+
     @Test
     public void getUserById_NotPresent_Test() throws Exception{
         User user = userList.get(0);
@@ -99,6 +259,123 @@ public class UserControllerTest {
         Mockito.verify(userService, Mockito.times(1)).save(isA(User.class));
     }
 
+    @Test
+    public void whenAcceptCbor_streamUsersAsCbor() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            userList.forEach(action);
+            return null;
+        }).when(userService).forEachUser(isA(Consumer.class));
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/user")
+                .accept(MediaType.APPLICATION_CBOR)
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getContentAsByteArray();
+        User[] users = new CBORMapper().readValue(body, User[].class);
+        assertEquals(2, users.length);
+        assertEquals("Hari Kumar", users[1].getName());
+    }
+
+    @Test
+    public void whenAcceptProtobuf_streamUsersAsUserList() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            userList.forEach(action);
+            return null;
+        }).when(userService).forEachUser(isA(Consumer.class));
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/user")
+                .accept(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+        CodedInputStream in = CodedInputStream.newInstance(body);
+        List<User> users = new ArrayList<>();
+        while(in.readTag() != 0){
+            users.add(UserProtobufHttpMessageConverter.readUser(CodedInputStream.newInstance(in.readByteArray())));
+        }
+        assertEquals(2, users.size());
+        assertEquals(500, users.get(0).getId());
+        assertEquals("Kathmandu", users.get(1).getAddress());
+    }
+
+    @Test
+    public void whenAcceptSmile_returnUserAsSmile() throws Exception {
+        Mockito.when(userService.getOneById(500)).thenReturn(Optional.of(userList.get(0)));
+
+        byte[] body = mockMvc.perform(
+                MockMvcRequestBuilders.get("/user/{id}", 500)
+                .accept(UserController.APPLICATION_SMILE)
+        )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(UserController.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("Ram Shrestha", new SmileMapper().readValue(body, User.class).getName());
+    }
+
+    @Test
+    public void whenSaveUser_acceptProtobufBody() throws Exception {
+        Mockito.when(userService.save(isA(User.class))).thenReturn(new ResponseMessage("Saved", HttpStatus.OK));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(body);
+        out.writeString(2, "Sita Rai");
+        out.writeInt32(3, 31);
+        out.writeString(4, "Pokhara");
+        out.flush();
+
+        byte[] response = mockMvc.perform(
+                MockMvcRequestBuilders.post("/user")
+                .contentType(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+                .accept(UserProtobufHttpMessageConverter.APPLICATION_PROTOBUF)
+                .content(body.toByteArray())
+        )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        Mockito.verify(userService).save(saved.capture());
+        assertEquals("Sita Rai", saved.getValue().getName());
+        assertEquals(31, saved.getValue().getAge());
+        CodedInputStream in = CodedInputStream.newInstance(response);
+        in.readTag();
+        assertEquals("Saved", in.readString());
+        in.readTag();
+        assertEquals("OK", in.readString());
+    }
+
+    @Test
+    public void whenUpdateUser_acceptCborBody() throws Exception {
+        Mockito.when(userService.update(isA(User.class))).thenReturn(new ResponseMessage("Updated", HttpStatus.OK));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/user")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(new CBORMapper().writeValueAsBytes(new User(500, "Ram Thapa", 35, "Kathmandu")))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message", Matchers.is("Updated")));
+        ArgumentCaptor<User> updated = ArgumentCaptor.forClass(User.class);
+        Mockito.verify(userService).update(updated.capture());
+        assertEquals("Ram Thapa", updated.getValue().getName());
+    }
+
+    @Test
+    public void negotiateByQuality(){
+        List<MediaType> formats = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+        assertEquals(MediaType.APPLICATION_JSON, UserController.negotiate(null, formats));
+        assertEquals(MediaType.APPLICATION_JSON, UserController.negotiate("*/*", formats));
+        assertEquals(MediaType.APPLICATION_CBOR, UserController.negotiate("application/json;q=0.5, application/cbor", formats));
+        assertEquals(MediaType.APPLICATION_CBOR, UserController.negotiate("application/json;q=0, */*", formats));
+    }
+
     @Test
     public void whenSaveUser_DuplicateUser_return400() throws Exception{
         User user = userList.get(0);
@@ -114,6 +391,156 @@ public class UserControllerTest {
         Mockito.verify(userService, Mockito.times(1)).save(isA(User.class));
     }
 
+    @Test
+    public void whenSaveUser_countOutcome() throws Exception{
+        Mockito.when(userService.save(isA(User.class))).thenReturn(new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST));
+        double before = duplicateCount();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userList.get(0)))
+        )
+                .andExpect(status().isBadRequest());
+        assertEquals(before + 1, duplicateCount(), 0);
+    }
+
+    private double duplicateCount(){
+        return meterRegistry.counter("user.responses", "operation", "save",
+                "outcome", "Duplicate User name.", "status", "BAD_REQUEST").count();
+    }
+
+    @Test
+    public void whenUsersRequestedByIds_returnThemInRequestOrder() throws Exception {
+        Mockito.when(userService.getAllById(Arrays.asList(501, 7, 500))).thenReturn(Arrays.asList(
+                UserLookupResult.found(userList.get(1)), UserLookupResult.notFound(7), UserLookupResult.found(userList.get(0))));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user").param("ids", "501,7,500")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].user.name", Matchers.is("Hari Kumar")))
+                .andExpect(jsonPath("$[1].id", Matchers.is(7)))
+                .andExpect(jsonPath("$[1].message", Matchers.is("User not found.")))
+                .andExpect(jsonPath("$[1].status", Matchers.is("BAD_REQUEST")))
+                .andExpect(jsonPath("$[2].user.id", Matchers.is(500)));
+    }
+
+    @Test
+    public void whenUsersLookedUpByBody_returnResults() throws Exception {
+        Mockito.when(userService.getAllById(Arrays.asList(500, 501))).thenReturn(Arrays.asList(
+                UserLookupResult.found(userList.get(0)), UserLookupResult.found(userList.get(1))));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[500,501]")
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].user.name", Matchers.contains("Ram Shrestha", "Hari Kumar")));
+    }
+
+    @Test
+    public void whenTooManyIdsLookedUp_return400() throws Exception {
+        String ids = IntStream.rangeClosed(1, UserService.MAX_LOOKUP_SIZE + 1)
+                .mapToObj(Integer::toString).collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ids)
+        )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", Matchers.is("Too many ids.")));
+        Mockito.verify(userService, Mockito.never()).getAllById(Mockito.anyList());
+    }
+
+    @Test
+    public void whenIdsMalformed_return400() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/user").param("ids", "1,two")
+                .accept(MediaType.APPLICATION_JSON)
+        )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenSaveBatch_JsonArray_returnReport() throws Exception {
+        Mockito.when(userService.saveBatch(Mockito.anyList(), Mockito.eq(0))).thenReturn(Arrays.asList(
+                new BatchItemResult(0, 500, "Saved", HttpStatus.OK),
+                new BatchItemResult(1, null, "Duplicate User name.", HttpStatus.BAD_REQUEST)));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userList))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[1].message", Matchers.is("Duplicate User name.")));
+        Mockito.verify(userService, Mockito.times(1)).saveBatch(Mockito.argThat(users -> users.size() == 2), Mockito.eq(0));
+    }
+
+    @Test
+    public void whenSaveBatch_Ndjson_readEachLine() throws Exception {
+        Mockito.when(userService.saveBatch(Mockito.anyList(), Mockito.eq(0))).thenReturn(Arrays.asList(
+                new BatchItemResult(0, 500, "Saved", HttpStatus.OK),
+                new BatchItemResult(1, 501, "Saved", HttpStatus.OK)));
+        String body = objectMapper.writeValueAsString(userList.get(0)) + "\n"
+                + objectMapper.writeValueAsString(userList.get(1)) + "\n";
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user/batch")
+                .contentType(UserController.APPLICATION_NDJSON_VALUE)
+                .content(body)
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].id", Matchers.is(501)));
+        Mockito.verify(userService, Mockito.times(1)).saveBatch(Mockito.argThat(users -> users.size() == 2), Mockito.eq(0));
+    }
+
+    @Test
+    public void whenSaveBatch_Malformed_return400() throws Exception {
+        Mockito.when(userService.saveBatch(Mockito.anyList(), Mockito.eq(0)))
+                .thenReturn(Collections.singletonList(new BatchItemResult(0, 500, "Saved", HttpStatus.OK)));
+        double before = meterRegistry.counter("user.responses", "operation", "batch",
+                "outcome", "Malformed user.", "status", "BAD_REQUEST").count();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + objectMapper.writeValueAsString(userList.get(0)) + ", {\"name\": ")
+        )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[1].message", Matchers.is("Malformed user.")));
+        assertEquals(before + 1, meterRegistry.counter("user.responses", "operation", "batch",
+                "outcome", "Malformed user.", "status", "BAD_REQUEST").count(), 0);
+    }
+
+    @Test
+    public void whenSaveBatch_ChunkHitsConcurrentInsert_saveOneAtATime() throws Exception {
+        Mockito.when(userService.saveBatch(Mockito.anyList(), Mockito.eq(0)))
+                .thenThrow(new DataIntegrityViolationException("uk_users_name"));
+        Mockito.when(userService.save(Mockito.argThat(user -> user != null && user.getName().equals("Ram Shrestha"))))
+                .thenReturn(new ResponseMessage("Saved", HttpStatus.OK));
+        Mockito.when(userService.save(Mockito.argThat(user -> user != null && user.getName().equals("Hari Kumar"))))
+                .thenReturn(new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/user/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userList))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[0].status", Matchers.is("OK")))
+                .andExpect(jsonPath("$[1].index", Matchers.is(1)))
+                .andExpect(jsonPath("$[1].status", Matchers.is("BAD_REQUEST")))
+                .andExpect(jsonPath("$[1].message", Matchers.is("Duplicate User name.")));
+    }
+
     @Test
     public void whenUserUpdate_return200() throws Exception{
         User user = userList.get(0);
@@ -144,6 +571,107 @@ public class UserControllerTest {
         Mockito.verify(userService, Mockito.times(1)).update(isA(User.class));
     }
 
+    @Test
+    public void whenUserUpdateWithIfMatch_returnNewETag() throws Exception{
+        User user = userList.get(0);
+        Mockito.when(userService.update(isA(User.class), Mockito.eq(3))).thenReturn(new ResponseMessage("Updated", HttpStatus.OK));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/user")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user))
+        )
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+        Mockito.verify(userService, Mockito.never()).update(isA(User.class));
+    }
+
+    @Test
+    public void whenUserUpdateWithStaleIfMatch_return412() throws Exception{
+        User user = userList.get(0);
+        Mockito.when(userService.update(isA(User.class), Mockito.eq(2)))
+                .thenReturn(new ResponseMessage("User has been modified.", HttpStatus.PRECONDITION_FAILED));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/user")
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user))
+        )
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.message", Matchers.is("User has been modified.")));
+    }
+
+    @Test
+    public void whenUserUpdateWithWeakIfMatch_return412() throws Exception{
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/user")
+                .header("If-Match", "W/\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userList.get(0)))
+        )
+                .andExpect(status().isPreconditionFailed());
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void whenUserPatched_passOnlyGivenAttributes() throws Exception{
+        Mockito.when(userService.patch(Mockito.eq(500), Mockito.anyMap(), Mockito.eq(OptionalInt.of(3))))
+                .thenReturn(new ResponseMessage("Updated", HttpStatus.OK));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/user/{id}", 500)
+                .header("If-Match", "\"3\"")
+                .contentType(UserController.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                .content("{\"address\": null, \"age\": 40}")
+        )
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("address", null);
+        changes.put("age", 40);
+        Mockito.verify(userService, Mockito.times(1)).patch(500, changes, OptionalInt.of(3));
+    }
+
+    @Test
+    public void whenUserPatchedWithUnknownOrInvalidAttribute_return400() throws Exception{
+        for(String patch : Arrays.asList("{\"id\": 7}", "{\"age\": null}", "{\"age\": \"old\"}", "{\"name\": 5}", "[]")){
+            mockMvc.perform(
+                    MockMvcRequestBuilders.patch("/user/{id}", 500)
+                    .contentType(UserController.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                    .content(patch)
+            )
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message", Matchers.is("Malformed patch.")));
+        }
+        Mockito.verify(userService, Mockito.never()).patch(Mockito.anyInt(), Mockito.anyMap(), isA(OptionalInt.class));
+    }
+
+    @Test
+    public void whenUsersDeletedInBulk_chunkAndReport() throws Exception{
+        List<Integer> ids = IntStream.range(0, UserService.BATCH_CHUNK_SIZE + 1).boxed().collect(Collectors.toList());
+        Mockito.when(userService.deleteBatch(Mockito.anyList(), Mockito.anyInt())).thenAnswer(invocation -> {
+            List<Integer> chunk = invocation.getArgument(0);
+            int offset = invocation.getArgument(1);
+            return IntStream.range(0, chunk.size())
+                    .mapToObj(i -> new BatchItemResult(offset + i, chunk.get(i), "Deleted", HttpStatus.OK))
+                    .collect(Collectors.toList());
+        });
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.delete("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ids))
+        )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(ids.size())))
+                .andExpect(jsonPath("$[500].index", Matchers.is(500)));
+        Mockito.verify(userService, Mockito.times(1)).deleteBatch(ids.subList(0, UserService.BATCH_CHUNK_SIZE), 0);
+        Mockito.verify(userService, Mockito.times(1)).deleteBatch(ids.subList(UserService.BATCH_CHUNK_SIZE, ids.size()), UserService.BATCH_CHUNK_SIZE);
+    }
+
     @Test
     public void whenUserDelete_return200() throws Exception{
         Mockito.when(userService.deleteUser(isA(Integer.class))).thenReturn(new ResponseMessage("Deleted", HttpStatus.OK));
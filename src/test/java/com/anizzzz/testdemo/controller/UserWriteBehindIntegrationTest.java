@@ -0,0 +1,90 @@
+package com.anizzzz.testdemo.controller;
+
+import com.anizzzz.testdemo.dto.WriteStatus;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "write-behind"})
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:user-write-behind;DB_CLOSE_DELAY=-1")
+public class UserWriteBehindIntegrationTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+
+    @After
+    public void cleanUp(){
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void whenUserPosted_acceptThenWriteBehind() throws Exception {
+        WriteStatus saved = pollUntilDone(post(new User("Ram Shrestha", 34, "Kathmandu")));
+        assertEquals(WriteStatus.State.SAVED, saved.getState());
+        assertEquals("Ram Shrestha", userRepository.findById(saved.getUserId()).get().getName());
+
+        WriteStatus duplicate = pollUntilDone(post(new User("Ram Shrestha", 40, "Pokhara")));
+        assertEquals(WriteStatus.State.REJECTED, duplicate.getState());
+        assertEquals("Duplicate User name.", duplicate.getMessage());
+    }
+
+    @Test
+    public void whenTrackingIdUnknown_return400() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/user/writes/{trackingId}", "nope"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String post(User user) throws Exception {
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user))
+        )
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.trackingId").exists())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+        return result.getResponse().getHeader("Location");
+    }
+
+    private WriteStatus pollUntilDone(String location) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while(System.nanoTime() < deadline){
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(location))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            WriteStatus status = objectMapper.readValue(result.getResponse().getContentAsString(), WriteStatus.class);
+            if(status.getState() != WriteStatus.State.PENDING){
+                return status;
+            }
+            Thread.sleep(20);
+        }
+        fail("write still pending after 5s");
+        return null;
+    }
+}
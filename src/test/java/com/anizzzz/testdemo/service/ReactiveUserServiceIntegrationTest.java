@@ -0,0 +1,141 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.model.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@TestPropertySource(properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-test"
+})
+public class ReactiveUserServiceIntegrationTest {
+    @Autowired
+    private ReactiveUserService userService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private List<User> userList;
+
+    @Before
+    public void init(){
+        userList = Stream.of(
+                new User("Ram Shrestha", 34, "Kathmandu"),
+                new User("Hari Kumar", 45, "Kathmandu"),
+                new User("Shyam Kumar", 25, null)
+        ).collect(Collectors.toList());
+        Flux.fromIterable(userList).concatMap(userService::save).blockLast();
+    }
+
+    @Test
+    public void whenUserListRequested_returnListInIdOrder(){
+        List<User> users = userService.getAll().collectList().block();
+        assertNotNull(users);
+        assertEquals(userList.size(), users.size());
+        assertEquals("Ram Shrestha", users.get(0).getName());
+        assertTrue(users.get(0).getId() < users.get(1).getId());
+    }
+
+    @Test
+    public void whenUserRequestedById_UserPresent(){
+        User mockUser = userList.get(2);
+        User user = userService.getOneById(mockUser.getId()).block();
+
+        assertNotNull(user);
+        assertEquals(mockUser.getName(), user.getName());
+        assertEquals(mockUser.getAge(), user.getAge());
+        assertNull(user.getAddress());
+    }
+
+    @Test
+    public void whenUserRequestById_UserNotPresent(){
+        assertNull(userService.getOneById(-1).block());
+    }
+
+    @Test
+    public void whenSavingUserWithDuplicateNameTest(){
+        ResponseMessage response = userService.save(new User("Hari Kumar", 21, "Birgunj")).block();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("Duplicate User name.", response.getMessage());
+    }
+
+    @Test
+    public void whenUpdatingWithPresentUserTest(){
+        User user = userList.get(1);
+        user.setAddress("Nepal");
+
+        ResponseMessage response = userService.update(user).block();
+        assertNotNull(response);
+        assertEquals("Updated", response.getMessage());
+        assertEquals("Nepal", userService.getOneById(user.getId()).block().getAddress());
+    }
+
+    @Test
+    public void whenUpdatingWithAbsentUserTest(){
+        ResponseMessage response = userService.update(new User(-1, "Test Data", 33, "Birgunj")).block();
+        assertNotNull(response);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("User not found.", response.getMessage());
+    }
+
+    @Test
+    public void whenRenamingToTakenNameTest(){
+        User user = userList.get(1);
+        user.setName("Ram Shrestha");
+
+        ResponseMessage response = userService.update(user).block();
+        assertNotNull(response);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("Duplicate User name.", response.getMessage());
+        assertEquals("Hari Kumar", userService.getOneById(user.getId()).block().getName());
+    }
+
+    @Test
+    public void whenDeletingWithPresentUserTest(){
+        User user = userList.get(0);
+
+        ResponseMessage response = userService.deleteUser(user.getId()).block();
+        assertNotNull(response);
+        assertEquals("Deleted", response.getMessage());
+        assertNull(userService.getOneById(user.getId()).block());
+    }
+
+    @Test
+    public void whenUserTombstonedElsewhere_leaveItOut(){
+        User user = userList.get(0);
+        databaseClient.sql("update users set deleted_at = current_timestamp where id = :id")
+                .bind("id", user.getId()).fetch().rowsUpdated().block();
+
+        assertNull(userService.getOneById(user.getId()).block());
+        assertEquals(userList.size() - 1, userService.getAll().count().block().intValue());
+        assertEquals("User not found.", userService.update(user).block().getMessage());
+        assertEquals("User not found.", userService.deleteUser(user.getId()).block().getMessage());
+    }
+
+    @After
+    public void destroy(){
+        databaseClient.sql("delete from users").fetch().rowsUpdated().block();
+    }
+}
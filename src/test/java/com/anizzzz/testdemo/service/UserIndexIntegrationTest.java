@@ -0,0 +1,108 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.dto.UserSearch;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles({"test", "index"})
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:user-index;DB_CLOSE_DELAY=-1")
+public class UserIndexIntegrationTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserIndex userIndex;
+    @Autowired
+    private UserIndexEndpoint userIndexEndpoint;
+
+    @After
+    public void cleanUp(){
+        userRepository.deleteAllInBatch();
+        userIndex.rebuild();
+    }
+
+    @Test
+    public void whenUsersWrittenThroughService_indexFollowsAfterCommit(){
+        userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+        userService.saveBatch(Arrays.asList(new User("Hari Kumar", 45, "Kathmandu"), new User("Shyam Kumar", 25, "Kathmandu")), 0);
+        int hari = userIndex.idOf("Hari Kumar").getAsInt();
+        userService.update(new User(hari, "Hari Kumar", 26, "Kathmandu"));
+        userService.deleteUser(userIndex.idOf("Ram Shrestha").getAsInt());
+
+        assertEquals(2, userIndex.size());
+        assertEquals(OptionalInt.empty(), userIndex.idOf("Ram Shrestha"));
+        assertEquals(0L, userIndexEndpoint.status().get("drift"));
+
+        UserSearch search = new UserSearch();
+        search.setMinAge(20);
+        search.setMaxAge(30);
+        assertEquals(Arrays.asList("Hari Kumar", "Shyam Kumar"), names(userService.search(search, null, 10).get().getContent()));
+    }
+
+    @Test
+    public void whenRowsWrittenBehindItsBack_reportDriftUntilRebuilt(){
+        userRepository.save(new User("Sita Rai", 31, "Pokhara"));
+
+        assertEquals(1L, userIndexEndpoint.status().get("drift"));
+        assertEquals(0L, userIndexEndpoint.rebuild().get("drift"));
+        assertEquals(1, userIndex.size());
+    }
+
+    @Test
+    public void whenIndexStale_confirmNamesAgainstDatabase(){
+        User ram = new User("Ram Shrestha", 34, "Kathmandu");
+        userService.save(ram);
+        User renamed = userRepository.findById(ram.getId()).get();
+        renamed.setName("Ram Thapa");
+        userRepository.save(renamed);
+
+        assertEquals(OptionalInt.of(ram.getId()), userIndex.idOf("Ram Shrestha"));
+        assertFalse(userService.isNameTaken("Ram Shrestha"));
+        assertEquals(HttpStatus.OK, userService.save(new User("Ram Shrestha", 40, "Pokhara")).getStatus());
+    }
+
+    @Test
+    public void whenIndexedUserDeletedBehindItsBack_pageOnPastIt(){
+        userService.saveBatch(Arrays.asList(new User("Ram Shrestha", 25, "Kathmandu"),
+                new User("Hari Kumar", 25, "Kathmandu"), new User("Shyam Kumar", 25, "Kathmandu")), 0);
+        userRepository.deleteById(userIndex.idOf("Ram Shrestha").getAsInt());
+
+        UserSearch search = new UserSearch();
+        search.setMinAge(25);
+        search.setMaxAge(25);
+        UserPage first = userService.search(search, null, 2).get();
+        assertEquals(Arrays.asList("Hari Kumar", "Shyam Kumar"), names(first.getContent()));
+        assertNotNull(first.getNext());
+        UserPage second = userService.search(search, first.getNext(), 2).get();
+        assertTrue(second.getContent().isEmpty());
+        assertNull(second.getNext());
+    }
+
+    private static List<String> names(List<User> users){
+        return users.stream().map(User::getName).sorted().collect(Collectors.toList());
+    }
+}
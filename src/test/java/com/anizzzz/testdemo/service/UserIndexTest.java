@@ -0,0 +1,118 @@
+package com.anizzzz.testdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Tuple;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isA;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserIndexTest {
+    @Mock
+    private UserService userService;
+
+    private UserIndex userIndex;
+
+    @Before
+    public void init(){
+        userIndex = new UserIndex(userService, new SimpleMeterRegistry());
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 500, "Ram Shrestha", 34));
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 501, "Hari Kumar", 45));
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 502, "Shyam Kumar", 25));
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 503, "Hari Bahadur", 25));
+    }
+
+    @Test
+    public void whenLookedUpByName_returnId(){
+        assertEquals(OptionalInt.of(501), userIndex.idOf("Hari Kumar"));
+        assertEquals(OptionalInt.empty(), userIndex.idOf("Sita Thapa"));
+    }
+
+    @Test
+    public void whenAgeRangeQueried_returnIdsInIdOrder(){
+        assertArrayEquals(new int[]{500, 502, 503}, userIndex.idsByAge(20, 40, 0, 10));
+        assertArrayEquals(new int[]{501}, userIndex.idsByAge(45, Integer.MAX_VALUE, 0, 10));
+        assertArrayEquals(new int[]{500, 501, 502, 503}, userIndex.idsByAge(Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 10));
+        assertArrayEquals(new int[0], userIndex.idsByAge(46, 45, 0, 10));
+    }
+
+    @Test
+    public void whenAgeRangePaged_seekPastCursorAcrossAges(){
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 504, "Gita Thapa", 34));
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 505, "Sita Rai", 25));
+
+        assertArrayEquals(new int[]{500, 502}, userIndex.idsByAge(20, 40, 0, 2));
+        assertArrayEquals(new int[]{503, 504}, userIndex.idsByAge(20, 40, 502, 2));
+        assertArrayEquals(new int[]{505}, userIndex.idsByAge(20, 40, 504, 2));
+        assertArrayEquals(new int[0], userIndex.idsByAge(20, 40, 505, 2));
+    }
+
+    @Test
+    public void whenUserUpdated_moveNameAndAge(){
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.UPDATED, 500, "Ram Thapa", 50));
+
+        assertEquals(OptionalInt.empty(), userIndex.idOf("Ram Shrestha"));
+        assertEquals(OptionalInt.of(500), userIndex.idOf("Ram Thapa"));
+        assertArrayEquals(new int[]{500, 501}, userIndex.idsByAge(40, 60, 0, 10));
+        assertEquals(4, userIndex.size());
+    }
+
+    @Test
+    public void whenUserPatched_keepAttributesNotInPatch(){
+        userIndex.onUserChanged(UserChangedEvent.patched(500, Map.of("age", 50)));
+        userIndex.onUserChanged(UserChangedEvent.patched(501, Map.of("address", "Pokhara")));
+        userIndex.onUserChanged(UserChangedEvent.patched(999, Map.of("age", 50)));
+
+        assertEquals(OptionalInt.of(500), userIndex.idOf("Ram Shrestha"));
+        assertArrayEquals(new int[]{500, 501}, userIndex.idsByAge(40, 60, 0, 10));
+        assertEquals(4, userIndex.size());
+    }
+
+    @Test
+    public void whenUserDeleted_removeEverywhere(){
+        userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.DELETED, 502, "Shyam Kumar", 25));
+
+        assertEquals(OptionalInt.empty(), userIndex.idOf("Shyam Kumar"));
+        assertArrayEquals(new int[]{503}, userIndex.idsByAge(25, 25, 0, 10));
+        assertEquals(3, userIndex.size());
+    }
+
+    @Test
+    public void whenRebuilt_replaceWithDatabaseRowsAndKeepChangesMadeMeanwhile(){
+        Mockito.doAnswer(invocation -> {
+            Consumer<Tuple> action = invocation.getArgument(1);
+            action.accept(row(600, "Gita Thapa", 28));
+            userIndex.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.CREATED, 601, "Sita Rai", 31));
+            return null;
+        }).when(userService).forEachProjection(anyList(), isA(Consumer.class));
+
+        userIndex.rebuild();
+        assertEquals(2, userIndex.size());
+        assertEquals(OptionalInt.empty(), userIndex.idOf("Ram Shrestha"));
+        assertArrayEquals(new int[]{600, 601}, userIndex.idsByAge(20, 40, 0, 10));
+        assertEquals(0, userIndex.getChangesSinceRebuild());
+        assertNotNull(userIndex.getBuiltAt());
+    }
+
+    private static Tuple row(int id, String name, int age){
+        Tuple row = Mockito.mock(Tuple.class);
+        Mockito.when(row.get(0, Integer.class)).thenReturn(id);
+        Mockito.when(row.get(1, String.class)).thenReturn(name);
+        Mockito.when(row.get(2, Integer.class)).thenReturn(age);
+        return row;
+    }
+}
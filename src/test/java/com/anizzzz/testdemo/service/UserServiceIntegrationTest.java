@@ -1,6 +1,11 @@
 package com.anizzzz.testdemo.service;
 
+import com.anizzzz.testdemo.config.CacheConfig;
+import com.anizzzz.testdemo.dto.BatchItemResult;
 import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserLookupResult;
+import com.anizzzz.testdemo.dto.UserPage;
+import com.anizzzz.testdemo.dto.UserSearch;
 import com.anizzzz.testdemo.model.User;
 import com.anizzzz.testdemo.repository.UserRepository;
 import org.junit.After;
@@ -9,13 +14,26 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
@@ -30,6 +48,12 @@ public class UserServiceIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private List<User> userList;
 
     @Before
@@ -50,6 +74,87 @@ public class UserServiceIntegrationTest {
         assertEquals(userList.size(), users.size());
     }
 
+    @Test
+    public void whenUsersStreamed_visitAllInIdOrder(){
+        List<Integer> ids = new ArrayList<>();
+        userService.forEachUser(user -> ids.add(user.getId()));
+
+        assertEquals(userList.stream().map(User::getId).sorted().collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    public void whenProjectionStreamed_returnOnlyRequestedFields(){
+        List<String> rows = new ArrayList<>();
+        userService.forEachProjection(Arrays.asList("name", "id"), row -> {
+            assertEquals(2, row.getElements().size());
+            rows.add(row.get("name", String.class) + "#" + row.get("id", Integer.class));
+        });
+
+        assertEquals(userList.stream().sorted(Comparator.comparing(User::getId))
+                .map(user -> user.getName() + "#" + user.getId()).collect(Collectors.toList()), rows);
+    }
+
+    @Test
+    public void whenSearchedByNamePrefix_ignoreCase(){
+        UserSearch search = new UserSearch();
+        search.setName("hari");
+
+        assertEquals(Arrays.asList("Hari Kumar", "Hari Bahadur"), names(userService.search(search, null, 10).get()));
+    }
+
+    @Test
+    public void whenSearchedByContainsAndAgeRange_applyAllFilters(){
+        UserSearch search = new UserSearch();
+        search.setName("KUMAR");
+        search.setNameMatch(UserSearch.Match.CONTAINS);
+        search.setAddress("mand");
+        search.setAddressMatch(UserSearch.Match.CONTAINS);
+        search.setMinAge(20);
+        search.setMaxAge(30);
+
+        assertEquals(Collections.singletonList("Shyam Kumar"), names(userService.search(search, null, 10).get()));
+    }
+
+    @Test
+    public void whenSearchedWithWildcards_matchThemLiterally(){
+        UserSearch search = new UserSearch();
+        search.setName("%");
+        search.setNameMatch(UserSearch.Match.CONTAINS);
+
+        assertTrue(userService.search(search, null, 10).get().getContent().isEmpty());
+    }
+
+    @Test
+    public void whenSearchPaged_followCursorToEnd(){
+        UserSearch search = new UserSearch();
+        search.setMaxAge(40);
+
+        UserPage first = userService.search(search, null, 2).get();
+        UserPage second = userService.search(search, first.getNext(), 2).get();
+        assertEquals(Arrays.asList("Ram Shrestha", "Shyam Kumar"), names(first));
+        assertEquals(Collections.singletonList("Hari Bahadur"), names(second));
+        assertNull(second.getNext());
+    }
+
+    private static List<String> names(UserPage page){
+        return page.getContent().stream().map(User::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void whenPagesRequested_followCursorToEnd(){
+        List<User> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            Optional<UserPage> page = userService.getPage(cursor, 3);
+            assertTrue(page.isPresent());
+            seen.addAll(page.get().getContent());
+            cursor = page.get().getNext();
+        } while (cursor != null);
+
+        assertEquals(userList.size(), seen.size());
+        assertEquals(userList.get(0).getName(), seen.get(0).getName());
+    }
+
     @Test
     public void whenUserRequestedById_UserPresent(){
         User mockUser = userList.get(0);
@@ -66,6 +171,54 @@ public class UserServiceIntegrationTest {
     public void whenUserRequestById_UserNotPresent(){
         Optional<User> user = userService.getOneById(1000);
         assertFalse(user.isPresent());
+        assertNull(usersCache().get(1000));
+    }
+
+    @Test
+    public void whenUserRequestedById_servedFromCache(){
+        User mockUser = userList.get(0);
+        userService.getOneById(mockUser.getId());
+        userRepository.deleteById(mockUser.getId());
+
+        Optional<User> user = userService.getOneById(mockUser.getId());
+        assertTrue(user.isPresent());
+        assertEquals(mockUser.getName(), user.get().getName());
+    }
+
+    @Test
+    public void whenUserUpdated_cacheEntryEvicted(){
+        User user = userList.get(1);
+        userService.getOneById(user.getId());
+        assertNotNull(usersCache().get(user.getId()));
+
+        user.setAddress("Nepal");
+        userService.update(user);
+        assertNull(usersCache().get(user.getId()));
+        assertEquals("Nepal", userService.getOneById(user.getId()).get().getAddress());
+    }
+
+    @Test
+    public void whenUserReadBeforeUpdateCommits_evictAfterCommit(){
+        User user = userList.get(1);
+        userService.getOneById(user.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            user.setAddress("Nepal");
+            userService.update(user);
+            // a concurrent read still sees the committed row and caches it again
+            CompletableFuture<Optional<User>> read = CompletableFuture.supplyAsync(() -> userService.getOneById(user.getId()));
+            assertEquals("Kathmandu", read.join().get().getAddress());
+        });
+        assertEquals("Nepal", userService.getOneById(user.getId()).get().getAddress());
+    }
+
+    @Test
+    public void whenUserDeleted_cacheEntryEvicted(){
+        User user = userList.get(2);
+        userService.getOneById(user.getId());
+
+        userService.deleteUser(user.getId());
+        assertFalse(userService.getOneById(user.getId()).isPresent());
     }
 
     @Test
@@ -75,6 +228,7 @@ public class UserServiceIntegrationTest {
         ResponseMessage response = userService.save(user);
         assertEquals(HttpStatus.OK, response.getStatus());
         assertEquals("Saved", response.getMessage());
+        assertEquals("Test Data", userRepository.findById(user.getId()).get().getName());
     }
 
     @Test
@@ -86,6 +240,49 @@ public class UserServiceIntegrationTest {
         assertEquals("Duplicate User name.", response.getMessage());
     }
 
+    @Test
+    public void whenSavingBatch_insertUniqueAndReportDuplicates(){
+        List<User> batch = new ArrayList<>();
+        for(int i = 0; i < 1200; i++){
+            batch.add(new User("Batch User " + i, 20 + i % 50, "Lalitpur"));
+        }
+        batch.add(new User("Hari Kumar", 45, "Kathmandu"));
+
+        List<BatchItemResult> results = userService.saveBatch(batch, 0);
+        assertEquals(batch.size(), results.size());
+        assertEquals(1200, results.stream().filter(r -> r.getStatus() == HttpStatus.OK).count());
+        assertEquals("Duplicate User name.", results.get(1200).getMessage());
+        assertNull(results.get(1200).getId());
+        assertTrue(userRepository.findById(results.get(0).getId()).isPresent());
+        assertEquals(userList.size() + 1200, userRepository.count());
+    }
+
+    @Test
+    public void whenSavingBatchWithIds_insertNewUsersInsteadOfOverwriting(){
+        User existing = userList.get(0);
+
+        List<BatchItemResult> results = userService.saveBatch(List.of(new User(existing.getId(), "Intruder", 50, "Pokhara")), 0);
+        assertEquals(HttpStatus.OK, results.get(0).getStatus());
+        assertNotEquals(Integer.valueOf(existing.getId()), results.get(0).getId());
+        assertEquals("Ram Shrestha", userRepository.findById(existing.getId()).get().getName());
+        assertEquals("Intruder", userRepository.findById(results.get(0).getId()).get().getName());
+        assertEquals(userList.size() + 1, userRepository.count());
+    }
+
+    @Test
+    public void whenSavingUserWithDuplicateName_rowCountUnchanged(){
+        User user = new User("Hari Kumar", 21, "Birgunj");
+
+        ResponseMessage response = userService.save(user);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals(userList.size(), userRepository.count());
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void whenDuplicateNameBypassesService_uniqueIndexRejects(){
+        userRepository.saveAndFlush(new User("Ram Shrestha", 40, "Bhaktapur"));
+    }
+
     @Test
     public void whenUpdatingWithPresentUserTest(){
         User user = userList.get(1);
@@ -106,6 +303,94 @@ public class UserServiceIntegrationTest {
         assertEquals("User not found.", response.getMessage());
     }
 
+    @Test
+    public void whenRenamingToTakenName_duplicateRejected(){
+        User user = userList.get(1);
+        int version = userService.getOneById(user.getId()).get().getVersion();
+        user.setName("Ram Shrestha");
+
+        for(ResponseMessage response : List.of(userService.update(user), userService.update(user, version))){
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+            assertEquals("Duplicate User name.", response.getMessage());
+        }
+        assertEquals("Hari Kumar", userRepository.findById(user.getId()).get().getName());
+    }
+
+    @Test
+    public void whenUpdatingWithVersion_staleWriteRejected(){
+        User user = userList.get(1);
+        int version = userService.getOneById(user.getId()).get().getVersion();
+
+        user.setAddress("Pokhara");
+        assertEquals(HttpStatus.OK, userService.update(user, version).getStatus());
+        assertEquals(version + 1, userService.getOneById(user.getId()).get().getVersion());
+
+        user.setAddress("Dharan");
+        ResponseMessage response = userService.update(user, version);
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatus());
+        assertEquals("User has been modified.", response.getMessage());
+        assertEquals("Pokhara", userService.getOneById(user.getId()).get().getAddress());
+    }
+
+    @Test
+    public void whenUpdatingAbsentUserWithVersion_notFound(){
+        ResponseMessage response = userService.update(new User(550, "Test Data", 33, "Birgunj"), 0);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("User not found.", response.getMessage());
+    }
+
+    @Test
+    public void whenPatched_writeOnlyGivenAttributes(){
+        User user = userList.get(1);
+        int version = userService.getOneById(user.getId()).get().getVersion();
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("address", null);
+        changes.put("age", 70);
+
+        ResponseMessage response = userService.patch(user.getId(), changes, OptionalInt.of(version));
+        assertEquals(HttpStatus.OK, response.getStatus());
+        User patched = userService.getOneById(user.getId()).get();
+        assertEquals(user.getName(), patched.getName());
+        assertEquals(70, patched.getAge());
+        assertNull(patched.getAddress());
+        assertEquals(version + 1, patched.getVersion());
+
+        response = userService.patch(user.getId(), Map.of("age", 71), OptionalInt.of(version));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST, userService.patch(550, Map.of("age", 71), OptionalInt.empty()).getStatus());
+    }
+
+    @Test
+    public void collectionTag_changesWithEveryWrite(){
+        String initial = userService.getCollectionTag(UserService.FIELDS);
+        assertEquals(initial, userService.getCollectionTag(UserService.FIELDS));
+        assertNotEquals(initial, userService.getCollectionTag(Arrays.asList("id", "name")));
+
+        User user = userList.get(1);
+        user.setAge(user.getAge() + 1);
+        userService.update(user);
+        String updated = userService.getCollectionTag(UserService.FIELDS);
+        assertNotEquals(initial, updated);
+
+        userService.deleteUser(user.getId());
+        String deleted = userService.getCollectionTag(UserService.FIELDS);
+        assertNotEquals(updated, deleted);
+
+        userService.save(new User("Tag User", 30, "Lalitpur"));
+        assertNotEquals(deleted, userService.getCollectionTag(UserService.FIELDS));
+    }
+
+    @Test
+    public void collectionTag_movesOncePerCommittedTransaction(){
+        long initial = Long.parseLong(userService.getCollectionTag(UserService.FIELDS), 36);
+
+        userService.saveBatch(Arrays.asList(new User("Tag One", 30, "Lalitpur"), new User("Tag Two", 31, "Lalitpur")), 0);
+        assertEquals(initial + 1, Long.parseLong(userService.getCollectionTag(UserService.FIELDS), 36));
+
+        assertEquals(HttpStatus.BAD_REQUEST, userService.save(new User("Tag One", 32, "Bhaktapur")).getStatus());
+        assertEquals(initial + 1, Long.parseLong(userService.getCollectionTag(UserService.FIELDS), 36));
+    }
+
     @Test
     public void whenDeletingWithPresentUserTest(){
         User user = userList.get(userList.size()-1);
@@ -115,6 +400,48 @@ public class UserServiceIntegrationTest {
         assertEquals("Deleted", response.getMessage());
     }
 
+    @Test
+    public void whenDeletingBatch_reportEachIdAndEvictCache(){
+        User user = userList.get(0);
+        userService.getOneById(user.getId());
+
+        List<BatchItemResult> results = userService.deleteBatch(Arrays.asList(user.getId(), 550, userList.get(1).getId()), 0);
+        assertEquals(Arrays.asList(HttpStatus.OK, HttpStatus.BAD_REQUEST, HttpStatus.OK),
+                results.stream().map(BatchItemResult::getStatus).collect(Collectors.toList()));
+        assertNull(usersCache().get(user.getId()));
+        assertFalse(userService.getOneById(user.getId()).isPresent());
+        assertEquals(userList.size() - 2, userRepository.count());
+    }
+
+    @Test
+    public void whenUsersLookedUpByIds_returnRequestOrderWithNotFoundMarkers(){
+        User cached = userList.get(2);
+        userService.getOneById(cached.getId());
+        List<Integer> ids = Arrays.asList(userList.get(1).getId(), 550, cached.getId(), null, userList.get(1).getId());
+
+        List<UserLookupResult> results = userService.getAllById(ids);
+
+        assertEquals(Arrays.asList("Hari Kumar", null, "Shyam Kumar", null, "Hari Kumar"),
+                results.stream().map(r -> r.getUser() == null ? null : r.getUser().getName()).collect(Collectors.toList()));
+        assertEquals(Integer.valueOf(550), results.get(1).getId());
+        assertEquals("User not found.", results.get(1).getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, results.get(3).getStatus());
+        assertNotNull(usersCache().get(userList.get(1).getId()));
+    }
+
+    @Test
+    public void whenMoreIdsThanOneChunk_loadThemAll(){
+        List<User> more = userRepository.saveAll(IntStream.range(0, UserService.BATCH_CHUNK_SIZE + 10)
+                .mapToObj(i -> new User("Lookup User " + i, 20 + i % 50, "Lalitpur"))
+                .collect(Collectors.toList()));
+        List<Integer> ids = more.stream().map(User::getId).collect(Collectors.toList());
+        Collections.reverse(ids);
+
+        List<UserLookupResult> results = userService.getAllById(ids);
+
+        assertEquals(ids, results.stream().map(r -> r.getUser().getId()).collect(Collectors.toList()));
+    }
+
     @Test
     public void whenDeletingWithAbsentUserTest(){
         ResponseMessage response = userService.deleteUser(550);
@@ -125,5 +452,10 @@ public class UserServiceIntegrationTest {
     @After
     public void destroy(){
         userRepository.deleteAll(userRepository.findAll());
+        usersCache().clear();
+    }
+
+    private Cache usersCache(){
+        return cacheManager.getCache(CacheConfig.USERS);
     }
 }
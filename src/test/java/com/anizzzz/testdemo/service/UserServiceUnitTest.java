@@ -1,6 +1,9 @@
 package com.anizzzz.testdemo.service;
 
+import com.anizzzz.testdemo.config.CacheConfig;
+import com.anizzzz.testdemo.dto.BatchItemResult;
 import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.UserPage;
 import com.anizzzz.testdemo.model.User;
 import com.anizzzz.testdemo.repository.UserRepository;
 import org.junit.Assert;
@@ -11,10 +14,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,6 +45,21 @@ public class UserServiceUnitTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    @Mock
+    private ObjectProvider<UserIndex> userIndex;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cache;
+
     private List<User> userList;
 
     @Before
@@ -50,6 +79,56 @@ public class UserServiceUnitTest {
         assertEquals(userList.get(0), users.get(0));
     }
 
+    @Test
+    public void whenUsersStreamed_eachUserDetached(){
+        when(userRepository.streamAll()).thenReturn(userList.stream());
+        List<User> seen = new ArrayList<>();
+
+        userService.forEachUser(seen::add);
+        assertEquals(userList, seen);
+        verify(entityManager, Mockito.times(1)).detach(userList.get(0));
+        verify(entityManager, Mockito.times(1)).detach(userList.get(1));
+    }
+
+    @Test
+    public void whenFieldsParsed_keepOrderAndDropRepeats(){
+        assertEquals(Optional.of(Arrays.asList("name", "id")), UserService.parseFields("name, id,name"));
+    }
+
+    @Test
+    public void whenFieldsUnknown_returnEmpty(){
+        assertEquals(Optional.empty(), UserService.parseFields("id,password"));
+        assertEquals(Optional.empty(), UserService.parseFields(""));
+    }
+
+    @Test
+    public void whenFullPageRequested_returnNextCursor(){
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 2))).thenReturn(userList);
+
+        Optional<UserPage> page = userService.getPage(null, 2);
+        Assert.assertTrue(page.isPresent());
+        assertEquals(userList, page.get().getContent());
+        assertEquals(Optional.of(501), UserService.decodeCursor(page.get().getNext()));
+    }
+
+    @Test
+    public void whenLastPageRequested_returnNoCursor(){
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(500, PageRequest.of(0, 10)))
+                .thenReturn(userList.subList(1, 2));
+
+        Optional<UserPage> page = userService.getPage(UserService.encodeCursor(500), 10);
+        Assert.assertTrue(page.isPresent());
+        assertEquals(1, page.get().getContent().size());
+        Assert.assertNull(page.get().getNext());
+    }
+
+    @Test
+    public void whenPageRequestedWithInvalidCursor_returnEmpty(){
+        Optional<UserPage> page = userService.getPage("not a cursor", 10);
+        Assert.assertFalse(page.isPresent());
+        verify(userRepository, Mockito.never()).findByIdGreaterThanOrderByIdAsc(Mockito.anyInt(), Mockito.any());
+    }
+
     @Test
     public void whenUserRequestedById_UserPresent(){
         when(userRepository.findById(isA(Integer.class))).thenReturn(Optional.of(userList.get(0)));
@@ -72,19 +151,30 @@ public class UserServiceUnitTest {
     @Test
     public void whenSavingUserWithUniqueUserTest(){
         User user = userList.get(0);
-        when(userRepository.findByName(isA(String.class))).thenReturn(Optional.empty());
-        when(userRepository.save(isA(User.class))).thenReturn(isA(User.class));
+        when(userRepository.insertIfNameAbsent(user)).thenReturn(true);
 
         ResponseMessage response = userService.save(user);
-        verify(userRepository, Mockito.times(1)).save(user);
+        verify(userRepository, Mockito.times(1)).insertIfNameAbsent(user);
+        verify(userRepository, Mockito.never()).findByName(isA(String.class));
+        verify(events, Mockito.times(1)).publishEvent(isA(UserChangedEvent.class));
         assertEquals(HttpStatus.OK, response.getStatus());
         assertEquals("Saved", response.getMessage());
     }
 
+    @Test
+    public void whenSavingUser_leaveNameCheckToInsertNotIndex(){
+        User user = userList.get(0);
+        when(userRepository.insertIfNameAbsent(user)).thenReturn(true);
+
+        ResponseMessage response = userService.save(user);
+        verify(userIndex, Mockito.never()).getIfAvailable();
+        assertEquals(HttpStatus.OK, response.getStatus());
+    }
+
     @Test
     public void whenSavingUserWithDuplicateNameTest(){
         User user = userList.get(0);
-        when(userRepository.findByName(isA(String.class))).thenReturn(Optional.of(user));
+        when(userRepository.insertIfNameAbsent(user)).thenReturn(false);
 
         ResponseMessage response = userService.save(user);
         verify(userRepository, Mockito.never()).save(user);
@@ -92,14 +182,48 @@ public class UserServiceUnitTest {
         assertEquals("Duplicate User name.", response.getMessage());
     }
 
+    @Test
+    public void whenSavingUserLosesRaceOnUniqueName_returnDuplicate(){
+        User user = userList.get(0);
+        when(userRepository.insertIfNameAbsent(user)).thenThrow(new DataIntegrityViolationException("uk_users_name"));
+
+        ResponseMessage response = userService.save(user);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("Duplicate User name.", response.getMessage());
+    }
+
+    @Test
+    public void whenSavingBatch_duplicatesReportedAndRestInsertedTogether(){
+        User fresh = new User("Gita Thapa", 28, "Butwal");
+        User repeated = new User("Gita Thapa", 29, "Dharan");
+        User existing = new User("Ram Shrestha", 55, "Kathmandu");
+        when(userRepository.findExistingNames(isA(Set.class))).thenReturn(Collections.singleton("Ram Shrestha"));
+
+        List<BatchItemResult> results = userService.saveBatch(Arrays.asList(fresh, repeated, existing), 10);
+        verify(userRepository, Mockito.times(1)).findExistingNames(isA(Set.class));
+        verify(userRepository, Mockito.times(1)).saveAll(Collections.singletonList(fresh));
+        assertEquals(3, results.size());
+        assertEquals(10, results.get(0).getIndex());
+        assertEquals(HttpStatus.OK, results.get(0).getStatus());
+        assertEquals("Duplicate User name.", results.get(1).getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, results.get(2).getStatus());
+    }
+
+    @Test
+    public void whenSavingEmptyBatch_noQueries(){
+        List<BatchItemResult> results = userService.saveBatch(Collections.emptyList(), 0);
+        Mockito.verifyNoInteractions(userRepository);
+        Assert.assertTrue(results.isEmpty());
+    }
+
     @Test
     public void whenUpdatingWithPresentUserTest(){
         User user = userList.get(0);
-        when(userRepository.findById(isA(Integer.class))).thenReturn(Optional.of(user));
-        when(userRepository.save(isA(User.class))).thenReturn(isA(User.class));
+        when(userRepository.update(user.getId(), user.getName(), user.getAge(), user.getAddress())).thenReturn(1);
 
         ResponseMessage response = userService.update(user);
-        verify(userRepository, Mockito.times(1)).save(user);
+        verify(userRepository, Mockito.never()).findById(isA(Integer.class));
+        verify(userRepository, Mockito.never()).save(user);
         assertEquals(HttpStatus.OK, response.getStatus());
         assertEquals("Updated", response.getMessage());
     }
@@ -107,31 +231,78 @@ public class UserServiceUnitTest {
     @Test
     public void whenUpdatingWithAbsentUserTest(){
         User user = userList.get(0);
-        when(userRepository.findById(isA(Integer.class))).thenReturn(Optional.empty());
+        when(userRepository.update(user.getId(), user.getName(), user.getAge(), user.getAddress())).thenReturn(0);
 
         ResponseMessage response = userService.update(user);
-        verify(userRepository, Mockito.never()).save(user);
+        verify(events, Mockito.never()).publishEvent(isA(UserChangedEvent.class));
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
         assertEquals("User not found.", response.getMessage());
     }
 
     @Test
-    public void whenDeletingWithPresentUserTest(){
+    public void whenUpdatingWithCurrentVersionTest(){
+        User user = userList.get(0);
+        when(userRepository.updateIfVersion(user.getId(), user.getName(), user.getAge(), user.getAddress(), 3)).thenReturn(1);
+
+        ResponseMessage response = userService.update(user, 3);
+        verify(userRepository, Mockito.never()).existsById(isA(Integer.class));
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertEquals("Updated", response.getMessage());
+    }
+
+    @Test
+    public void whenUpdatingWithStaleVersionTest(){
+        User user = userList.get(0);
+        when(userRepository.updateIfVersion(user.getId(), user.getName(), user.getAge(), user.getAddress(), 2)).thenReturn(0);
+        when(userRepository.existsById(user.getId())).thenReturn(true);
+
+        ResponseMessage response = userService.update(user, 2);
+        verify(events, Mockito.never()).publishEvent(isA(UserChangedEvent.class));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatus());
+        assertEquals("User has been modified.", response.getMessage());
+    }
+
+    @Test
+    public void whenUpdatingAbsentUserWithVersionTest(){
         User user = userList.get(0);
-        when(userService.getOneById(isA(Integer.class))).thenReturn(Optional.of(user));
+        when(userRepository.existsById(user.getId())).thenReturn(false);
+
+        ResponseMessage response = userService.update(user, 2);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        assertEquals("User not found.", response.getMessage());
+    }
+
+    @Test
+    public void whenDeletingWithPresentUserTest(){
+        when(userRepository.deleteIds(List.of(500))).thenReturn(1);
 
-        ResponseMessage response = userService.deleteUser(isA(Integer.class));
-        verify(userRepository, Mockito.times(1)).delete(user);
+        ResponseMessage response = userService.deleteUser(500);
+        verify(userRepository, Mockito.never()).findById(isA(Integer.class));
+        verify(events, Mockito.times(1)).publishEvent(isA(UserChangedEvent.class));
         assertEquals(HttpStatus.OK, response.getStatus());
         assertEquals("Deleted", response.getMessage());
     }
 
     @Test
     public void whenDeletingWithAbsentUserTest(){
-        when(userService.getOneById(isA(Integer.class))).thenReturn(Optional.empty());
+        when(userRepository.deleteIds(List.of(500))).thenReturn(0);
 
-        ResponseMessage response = userService.deleteUser(isA(Integer.class));
-        verify(userRepository, Mockito.never()).delete(isA(User.class));
+        ResponseMessage response = userService.deleteUser(500);
+        verify(events, Mockito.never()).publishEvent(isA(UserChangedEvent.class));
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
     }
+
+    @Test
+    public void whenDeletingBatch_deleteOnlyExistingIdsInOneStatement(){
+        when(userRepository.findExistingIds(Set.of(500, 501, 502))).thenReturn(List.of(500, 502));
+        when(cacheManager.getCache(CacheConfig.USERS)).thenReturn(cache);
+
+        List<BatchItemResult> results = userService.deleteBatch(Arrays.asList(500, 501, 502, 500), 10);
+        verify(userRepository, Mockito.times(1)).deleteIds(Set.of(500, 502));
+        verify(cache, Mockito.times(1)).evict(500);
+        verify(cache, Mockito.never()).evict(501);
+        assertEquals(Arrays.asList(10, 11, 12, 13), results.stream().map(BatchItemResult::getIndex).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("Deleted", "User not found.", "Deleted", "User not found."),
+                results.stream().map(BatchItemResult::getMessage).collect(Collectors.toList()));
+    }
 }
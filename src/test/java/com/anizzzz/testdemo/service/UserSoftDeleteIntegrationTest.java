@@ -0,0 +1,94 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.dto.BatchItemResult;
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.model.User;
+import com.anizzzz.testdemo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles({"test", "soft-delete"})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-soft-delete;DB_CLOSE_DELAY=-1",
+        "app.users.purge-interval=3600000"
+})
+public class UserSoftDeleteIntegrationTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @After
+    public void cleanUp(){
+        jdbcTemplate.update("delete from users");
+    }
+
+    @Test
+    public void whenDeleted_keepTombstoneButHideFromReads(){
+        userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+        int id = userRepository.findByName("Ram Shrestha").get().getId();
+
+        ResponseMessage response = userService.deleteUser(id);
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertFalse(userService.getOneById(id).isPresent());
+        assertEquals(0, userRepository.count());
+        assertEquals(HttpStatus.BAD_REQUEST, userService.deleteUser(id).getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST, userService.update(new User(id, "Ram Shrestha", 35, "Kathmandu")).getStatus());
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from users where deleted_at is not null", Integer.class));
+    }
+
+    @Test
+    public void whenBatchReusesTombstonedName_reportDuplicate(){
+        userService.save(new User("Ram Shrestha", 34, "Kathmandu"));
+        userService.deleteUser(userRepository.findByName("Ram Shrestha").get().getId());
+
+        List<BatchItemResult> results = userService.saveBatch(Arrays.asList(
+                new User("Ram Shrestha", 40, "Pokhara"), new User("Hari Kumar", 45, "Kathmandu")), 0);
+        assertEquals(Arrays.asList(HttpStatus.BAD_REQUEST, HttpStatus.OK),
+                results.stream().map(BatchItemResult::getStatus).collect(Collectors.toList()));
+        assertEquals("Duplicate User name.", results.get(0).getMessage());
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    public void whenPurged_removeOnlyExpiredTombstonesInBatches(){
+        userService.saveBatch(IntStream.range(0, 7)
+                .mapToObj(i -> new User("Purge User " + i, 20 + i, "Kathmandu"))
+                .collect(Collectors.toList()), 0);
+        userService.deleteBatch(userRepository.findAll().stream().map(User::getId).limit(5).collect(Collectors.toList()), 0);
+        jdbcTemplate.update("update users set deleted_at = ? where deleted_at is not null and name in (?, ?)",
+                Instant.now().plusSeconds(3600), "Purge User 0", "Purge User 1");
+
+        Clock clock = Clock.fixed(Instant.now().plusSeconds(60), ZoneOffset.UTC);
+        UserPurgeJob job = new UserPurgeJob(userRepository, Duration.ofSeconds(30), 2, clock, new SimpleMeterRegistry());
+        assertEquals(3, job.purge());
+        assertEquals(Arrays.asList("Purge User 0", "Purge User 1", "Purge User 5", "Purge User 6"),
+                jdbcTemplate.queryForList("select name from users order by name", String.class));
+        assertEquals(2, userRepository.count());
+    }
+}
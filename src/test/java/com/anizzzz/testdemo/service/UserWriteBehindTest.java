@@ -0,0 +1,152 @@
+package com.anizzzz.testdemo.service;
+
+import com.anizzzz.testdemo.dto.BatchItemResult;
+import com.anizzzz.testdemo.dto.ResponseMessage;
+import com.anizzzz.testdemo.dto.WriteStatus;
+import com.anizzzz.testdemo.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserWriteBehindTest {
+    @Mock
+    private UserService userService;
+    @Mock
+    private ObjectProvider<UserIndex> userIndex;
+    @Mock
+    private UserIndex index;
+
+    private UserWriteBehind writeBehind;
+
+    private UserWriteBehind start(int capacity, UserWriteBehind.Durability durability){
+        writeBehind = new UserWriteBehind(userService, userIndex, new SimpleMeterRegistry(), capacity, 100,
+                durability, Duration.ofSeconds(5), Duration.ofMinutes(1));
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    @After
+    public void stop(){
+        if(writeBehind != null && writeBehind.isRunning()){
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    public void whenQueueFull_rejectUntilWriterCatchesUp() throws Exception {
+        CountDownLatch inFirstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(userService.saveBatch(anyList(), anyInt())).thenAnswer(invocation -> {
+            inFirstBatch.countDown();
+            release.await();
+            return saved(invocation.getArgument(0));
+        });
+        start(2, UserWriteBehind.Durability.ACCEPTED);
+
+        UserWriteBehind.PendingWrite first = writeBehind.submit(new User("User 0", 20, "Kathmandu")).get();
+        assertTrue(inFirstBatch.await(5, TimeUnit.SECONDS));
+        assertTrue(writeBehind.submit(new User("User 1", 21, "Kathmandu")).isPresent());
+        assertTrue(writeBehind.submit(new User("User 2", 22, "Kathmandu")).isPresent());
+        assertFalse(writeBehind.submit(new User("User 3", 23, "Kathmandu")).isPresent());
+        assertEquals(WriteStatus.State.PENDING, writeBehind.status(first.getTrackingId()).get().getState());
+
+        release.countDown();
+        writeBehind.stop();
+        WriteStatus status = writeBehind.status(first.getTrackingId()).get();
+        assertEquals(WriteStatus.State.SAVED, status.getState());
+        assertEquals(Integer.valueOf(1000), status.getUserId());
+        assertFalse(writeBehind.submit(new User("User 4", 24, "Kathmandu")).isPresent());
+    }
+
+    @Test
+    public void whenCommittedDurability_awaitBatchOutcome(){
+        Mockito.when(userService.saveBatch(anyList(), anyInt())).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        start(16, UserWriteBehind.Durability.COMMITTED);
+
+        UserWriteBehind.PendingWrite write = writeBehind.submit(new User("User 0", 20, "Kathmandu")).get();
+        assertEquals(WriteStatus.State.SAVED, writeBehind.await(write).getState());
+    }
+
+    @Test
+    public void whenWrittenBeforeSubmitReturns_keepFinalStatus(){
+        Mockito.when(userService.saveBatch(anyList(), anyInt())).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        start(512, UserWriteBehind.Durability.ACCEPTED);
+
+        // the writer is kept busy, so it often drains a write before submit has returned it
+        List<UserWriteBehind.PendingWrite> writes = new ArrayList<>();
+        for(int i = 0; writes.size() < 2000; i++){
+            writeBehind.submit(new User("User " + i, 20, "Kathmandu")).ifPresent(writes::add);
+        }
+        writeBehind.stop();
+        for(UserWriteBehind.PendingWrite write : writes){
+            assertEquals(WriteStatus.State.SAVED, writeBehind.status(write.getTrackingId()).get().getState());
+        }
+    }
+
+    @Test
+    public void whenBatchFails_saveEachOnItsOwn(){
+        Mockito.when(userService.saveBatch(anyList(), anyInt())).thenThrow(new IllegalStateException("uk_users_name"));
+        Mockito.when(userService.save(Mockito.any(User.class)))
+                .thenReturn(new ResponseMessage("Duplicate User name.", HttpStatus.BAD_REQUEST));
+        start(16, UserWriteBehind.Durability.COMMITTED);
+
+        WriteStatus status = writeBehind.await(writeBehind.submit(new User("User 0", 20, "Kathmandu")).get());
+        assertEquals(WriteStatus.State.REJECTED, status.getState());
+        assertEquals("Duplicate User name.", status.getMessage());
+    }
+
+    @Test
+    public void whenNameInIndexAndTaken_rejectWithoutQueueing(){
+        Mockito.when(userIndex.getIfAvailable()).thenReturn(index);
+        Mockito.when(index.idOf("Ram Shrestha")).thenReturn(OptionalInt.of(500));
+        Mockito.when(userService.isNameTaken("Ram Shrestha")).thenReturn(true);
+        start(16, UserWriteBehind.Durability.ACCEPTED);
+
+        Optional<UserWriteBehind.PendingWrite> write = writeBehind.submit(new User("Ram Shrestha", 34, "Kathmandu"));
+        assertFalse(write.get().isQueued());
+        assertEquals(WriteStatus.State.REJECTED, write.get().status().getState());
+        Mockito.verify(userService, Mockito.never()).saveBatch(anyList(), anyInt());
+    }
+
+    @Test
+    public void whenNameInStaleIndex_queueAnyway(){
+        Mockito.when(userIndex.getIfAvailable()).thenReturn(index);
+        Mockito.when(index.idOf("Ram Shrestha")).thenReturn(OptionalInt.of(500));
+        Mockito.when(userService.isNameTaken("Ram Shrestha")).thenReturn(false);
+        Mockito.when(userService.saveBatch(anyList(), anyInt())).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        start(16, UserWriteBehind.Durability.COMMITTED);
+
+        UserWriteBehind.PendingWrite write = writeBehind.submit(new User("Ram Shrestha", 34, "Kathmandu")).get();
+        assertTrue(write.isQueued());
+        assertEquals(WriteStatus.State.SAVED, writeBehind.await(write).getState());
+    }
+
+    private static List<BatchItemResult> saved(List<User> users){
+        return IntStream.range(0, users.size())
+                .mapToObj(i -> new BatchItemResult(i, 1000 + i, "Saved", HttpStatus.OK))
+                .collect(Collectors.toList());
+    }
+}